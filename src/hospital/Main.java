@@ -1,21 +1,49 @@
 package hospital;
 
 import hospital.controller.LoginController;
+import hospital.model.DBConnection;
+import hospital.model.WriteQueue;
+import hospital.repository.DashboardSnapshot;
+import hospital.repository.QueryStats;
+import hospital.service.DisplayNames;
+import hospital.service.PatientRoster;
+import hospital.util.Async;
 import hospital.util.DBInitializer;
+import hospital.util.PaintTimer;
 import javafx.application.Application;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
 
 public class Main extends Application {
     @Override
-    public void start(Stage primaryStage) {
+    public void init() {
         DBInitializer.initializeDatabase();
+    }
+
+    @Override
+    public void start(Stage primaryStage) {
         LoginController controller = new LoginController(primaryStage);
         primaryStage.setTitle("Hospital Management");
         primaryStage.setScene(new Scene(controller.getLoginView(), 500, 400));
         primaryStage.show();
     }
 
+    @Override
+    public void stop() {
+        Async.supply(() -> {
+            WriteQueue.shutdown();
+            System.out.println("Repository " + QueryStats.summary());
+            System.out.println("Dashboard " + DashboardSnapshot.summary());
+            System.out.println("Patient " + PatientRoster.summary());
+            System.out.println("Display " + DisplayNames.getStats());
+            System.out.println("Dashboard " + PaintTimer.summary());
+            DBInitializer.shutdown();
+            DBConnection.shutdown();
+            return null;
+        }).join();
+        Async.shutdown();
+    }
+
     public static void main(String[] args) {
         launch(args);
     }
@@ -1,8 +1,16 @@
 package hospital.controller;
 
-import hospital.model.DBConnection;
+import hospital.model.User;
+import hospital.model.WriteQueue;
+import hospital.repository.UserRepository;
+import hospital.service.DisplayNames;
+import hospital.service.PatientRoster;
+import hospital.service.SchedulingEngine;
 import hospital.ui.Components;
 import hospital.ui.LayoutHelper;
+import hospital.ui.PagedList;
+import hospital.util.Async;
+import hospital.util.SearchPipeline;
 import hospital.util.Utils;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
@@ -11,13 +19,24 @@ import javafx.scene.layout.VBox;
 import javafx.scene.layout.HBox;
 import javafx.stage.Stage;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class AdminDashboardController {
 
+    private static final int PAGE_SIZE = 100;
+
     private Stage stage;
+    private final Label placeholder = LayoutHelper.createPlaceholder("Loading users...");
+    private final PagedList<User> pages = new PagedList<>(PAGE_SIZE, e -> {
+        e.printStackTrace();
+        Utils.showError("Error loading users.");
+    });
+    private String currentTerm = "";
+    private volatile String selectedRole = "All";
+    private SearchPipeline<UserPage> pipeline;
+
+    private record UserPage(String term, String role, List<User> users) {}
 
     public AdminDashboardController(Stage stage) {
         this.stage = stage;
@@ -40,21 +59,27 @@ public class AdminDashboardController {
         HBox filterBox = new HBox(10, searchField, roleFilter);
         filterBox.setAlignment(Pos.CENTER);
 
-        ScrollPane scrollPane = new ScrollPane();
-        VBox userList = new VBox(10);
-        userList.setAlignment(Pos.CENTER_LEFT);
-        scrollPane.setContent(userList);
-        scrollPane.setPrefHeight(300);
-        scrollPane.setFitToWidth(true);
+        ListView<User> userList = new ListView<>(pages.getItems());
+        userList.setCellFactory(list -> new UserCell());
+        userList.setPlaceholder(placeholder);
+        userList.setPrefHeight(300);
+
+        pipeline = new SearchPipeline<>(this::findFirstPage, this::showFirstPage, e -> {
+            e.printStackTrace();
+            placeholder.setText("No users found.");
+            Utils.showError("Error loading users.");
+        }).attach(searchField);
 
         Button refreshBtn = Components.createButton("Refresh");
         refreshBtn.setPrefWidth(120);
-        refreshBtn.setOnAction(e -> loadUsers(userList, searchField.getText(), roleFilter.getValue()));
+        refreshBtn.setOnAction(e -> pipeline.submitNow(searchField.getText()));
 
-        searchField.textProperty().addListener((obs, oldVal, newVal) -> loadUsers(userList, newVal, roleFilter.getValue()));
-        roleFilter.setOnAction(e -> loadUsers(userList, searchField.getText(), roleFilter.getValue()));
+        roleFilter.setOnAction(e -> {
+            selectedRole = roleFilter.getValue();
+            pipeline.submitNow(searchField.getText());
+        });
 
-        loadUsers(userList, "", "All");
+        pipeline.submitNow("");
 
         Button logoutBtn = Components.createButton("Logout");
         logoutBtn.setPrefWidth(120);
@@ -64,10 +89,14 @@ public class AdminDashboardController {
         createUserBtn.setPrefWidth(120);
         createUserBtn.setOnAction(e -> SignupController.showSignup(stage, "admin", "admin"));
 
-        HBox buttonBox = new HBox(10, refreshBtn, createUserBtn, logoutBtn);
+        Button searchNotesBtn = Components.createButton("Search Notes");
+        searchNotesBtn.setPrefWidth(120);
+        searchNotesBtn.setOnAction(e -> new NoteSearchController("admin", "admin").show());
+
+        HBox buttonBox = new HBox(10, refreshBtn, createUserBtn, searchNotesBtn, logoutBtn);
         buttonBox.setAlignment(Pos.CENTER);
 
-        root.getChildren().addAll(filterBox, scrollPane, buttonBox);
+        root.getChildren().addAll(filterBox, userList, buttonBox);
 
         Scene scene = new Scene(root, 700, 600);
         stage.setTitle("Admin Dashboard");
@@ -75,113 +104,97 @@ public class AdminDashboardController {
         stage.show();
     }
 
-    private void loadUsers(VBox container, String searchTerm, String roleFilter) {
-        container.getChildren().clear();
-
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(
-                 "SELECT u.username, u.role, u.name, " +
-                 "CASE " +
-                 "  WHEN u.role = 'patient' THEN COALESCE(p.name, u.name, u.username) " +
-                 "  WHEN u.role = 'admin' THEN COALESCE(u.name, 'Administrator') " +
-                 "  WHEN u.role = 'doctor' THEN COALESCE('Dr. ' || u.name, 'Dr. ' || u.username) " +
-                 "  WHEN u.role = 'nurse' THEN COALESCE(u.name, u.username) " +
-                 "  ELSE COALESCE(u.name, u.username) " +
-                 "END as display_name " +
-                 "FROM users u " +
-                 "LEFT JOIN patient_info p ON u.username = p.username AND u.role = 'patient'")) {
-
-            ResultSet rs = stmt.executeQuery();
-
-            while (rs.next()) {
-                String username = rs.getString("username");
-                String role = rs.getString("role");
-                String displayName = rs.getString("display_name");
-
-                boolean matchesSearch = searchTerm.isEmpty() ||
-                        username.toLowerCase().contains(searchTerm.toLowerCase()) ||
-                        (displayName != null && displayName.toLowerCase().contains(searchTerm.toLowerCase()));
-                boolean matchesRole = roleFilter.equals("All") || role.equalsIgnoreCase(roleFilter);
-
-                if (matchesSearch && matchesRole) {
-                    HBox row = new HBox(10);
-                    row.setAlignment(Pos.CENTER_LEFT);
-                    row.setPrefWidth(650);
-
-                    Label label = LayoutHelper.createBoldLabel(displayName + " (" + username + " - " + role + ")");
-                    label.setPrefWidth(400);
-
-                    if (!role.equalsIgnoreCase("admin")) {
-                        Button editBtn = Components.createButton("Edit");
-                        editBtn.setPrefWidth(80);
-                        editBtn.setOnAction(e -> EditUserController.showEditUser(stage, username, role, "admin"));
-
-                        Button deleteBtn = Components.createButton("Delete");
-                        deleteBtn.setPrefWidth(80);
-                        deleteBtn.setOnAction(e -> {
-                            Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
-                            alert.setTitle("Delete Confirmation");
-                            alert.setHeaderText("Delete User: " + username);
-                            alert.setContentText("Are you sure you want to delete this user?");
-                            alert.showAndWait().ifPresent(response -> {
-                                if (response == ButtonType.OK) {
-                                    deleteUser(username, container, searchTerm, roleFilter);
-                                }
-                            });
-                        });
-
-                        row.getChildren().addAll(label, editBtn, deleteBtn);
-                    } else {
-                        row.getChildren().add(label);
-                    }
-
-                    container.getChildren().add(row);
-                }
-            }
+    // The first page comes through the search pipeline; later pages are fetched with keyset pagination on
+    // username as the list is scrolled.
+    private UserPage findFirstPage(String term) throws Exception {
+        String role = selectedRole;
+        return new UserPage(term, role, UserRepository.search(term, roleOrNull(role), "", pages.getPageSize()));
+    }
 
-            if (container.getChildren().isEmpty()) {
-                container.getChildren().add(LayoutHelper.createBoldLabel("No users found."));
-            }
+    private void showFirstPage(UserPage page) {
+        currentTerm = page.term();
+        String role = roleOrNull(page.role());
+        pages.show(page.users(), (last, limit) -> UserRepository.search(page.term(), role, last.getUsername(), limit));
+        placeholder.setText("No users found.");
+    }
 
-        } catch (Exception e) {
-            e.printStackTrace();
-            Utils.showError("Error loading users.");
-        }
+    private static String roleOrNull(String role) {
+        return role.equals("All") ? null : role;
     }
 
-    private void deleteUser(String username, VBox container, String searchTerm, String roleFilter) {
-        try (Connection conn = DBConnection.getConnection()) {
-            
-            PreparedStatement roleStmt = conn.prepareStatement("SELECT role FROM users WHERE username = ?");
-            roleStmt.setString(1, username);
-            ResultSet roleRs = roleStmt.executeQuery();
-
-            if (roleRs.next()) {
-                String role = roleRs.getString("role");
-
-                if ("doctor".equalsIgnoreCase(role)) {
-                    PreparedStatement checkPatients = conn.prepareStatement(
-                        "SELECT COUNT(*) FROM doctor_nurse_assignment WHERE doctor_username = ?");
-                    checkPatients.setString(1, username);
-                    ResultSet rs = checkPatients.executeQuery();
-
-                    if (rs.next() && rs.getInt(1) > 0) {
-                        Utils.showError("Cannot delete doctor. Patients are still assigned.");
-                        return;
-                    }
-                }
+    private void confirmDelete(User user) {
+        String username = user.getUsername();
+        Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
+        alert.setTitle("Delete Confirmation");
+        alert.setHeaderText("Delete User: " + username);
+        alert.setContentText("Are you sure you want to delete this user?");
+        alert.showAndWait().ifPresent(response -> {
+            if (response == ButtonType.OK) {
+                deleteUser(username, user.getRole());
             }
+        });
+    }
 
-            PreparedStatement stmt = conn.prepareStatement("DELETE FROM users WHERE username = ?");
-            stmt.setString(1, username);
-            stmt.executeUpdate();
+    private void deleteUser(String username, String role) {
+        CompletableFuture<Boolean> delete = WriteQueue.submit(conn -> {
+            User user = UserRepository.findByUsername(conn, username);
+            if (user != null && "doctor".equalsIgnoreCase(user.getRole())
+                    && UserRepository.countNursesOfDoctor(conn, username) > 0) {
+                return false;
+            }
 
-            Utils.showInfo("User '" + username + "' deleted successfully.");
-            loadUsers(container, searchTerm, roleFilter);
+            UserRepository.delete(conn, username);
+            return true;
+        });
 
-        } catch (Exception e) {
+        Async.onFx(delete, deleted -> {
+            if (!deleted) {
+                Utils.showError("Cannot delete doctor. Patients are still assigned.");
+                return;
+            }
+            PatientRoster.recheck();
+            SchedulingEngine.invalidateAll();
+            DisplayNames.invalidate(username);
+            Utils.showInfo("User '" + username + "' deleted successfully.");
+            pipeline.submitNow(currentTerm);
+        }, e -> {
             e.printStackTrace();
             Utils.showError("Error deleting user: " + e.getMessage());
+        });
+    }
+
+    // Cells are recycled by the ListView, so only the visible rows exist as nodes. Showing the last row
+    // asks for the next page.
+    private class UserCell extends ListCell<User> {
+        private final Label label = LayoutHelper.createBoldLabel("");
+        private final Button editBtn = Components.createButton("Edit");
+        private final Button deleteBtn = Components.createButton("Delete");
+        private final HBox row = new HBox(10, label, editBtn, deleteBtn);
+
+        UserCell() {
+            row.setAlignment(Pos.CENTER_LEFT);
+            label.setPrefWidth(400);
+            editBtn.setPrefWidth(80);
+            deleteBtn.setPrefWidth(80);
+            editBtn.setOnAction(e -> EditUserController.showEditUser(stage, getItem().getUsername(), getItem().getRole(), "admin"));
+            deleteBtn.setOnAction(e -> confirmDelete(getItem()));
+        }
+
+        @Override
+        protected void updateItem(User user, boolean empty) {
+            super.updateItem(user, empty);
+            if (empty || user == null) {
+                setGraphic(null);
+                return;
+            }
+
+            label.setText(user.getDisplayName() + " (" + user.getUsername() + " - " + user.getRole() + ")");
+            boolean editable = !user.getRole().equalsIgnoreCase("admin");
+            editBtn.setVisible(editable);
+            deleteBtn.setVisible(editable);
+            setGraphic(row);
+
+            pages.rowShown(getIndex());
         }
     }
 
@@ -1,22 +1,38 @@
 package hospital.controller;
 
-import hospital.model.DBConnection;
+import hospital.model.BusyRetry;
+import hospital.model.Recurrence;
+import hospital.model.User;
+import hospital.repository.PatientRepository;
+import hospital.service.SchedulingConflictException;
+import hospital.service.SchedulingEngine;
+import hospital.service.StaffDirectory;
+import hospital.util.Async;
 import hospital.util.Utils;
-import javafx.collections.FXCollections;
+import javafx.event.ActionEvent;
+import javafx.event.EventHandler;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.layout.*;
 import javafx.stage.Stage;
+import javafx.util.StringConverter;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class AppointmentBookingController {
 
+    private static final int SEARCH_DAYS = 90;
+    private static final String SLOT_REQUEST = "slotRequest";
+
+    private static long slotRequests;
+
     public static void showAppointmentScreen(Stage stage, String patientUsername) {
         VBox root = new VBox(15);
         root.setPadding(new Insets(20));
@@ -32,91 +48,194 @@ public class AppointmentBookingController {
         DatePicker datePicker = new DatePicker();
         datePicker.setPromptText("Select Appointment Date");
 
-        Spinner<Integer> hourSpinner = new Spinner<>(1, 12, 10);
-        hourSpinner.setEditable(true);
-
-        Spinner<Integer> minuteSpinner = new Spinner<>(0, 59, 0);
-        minuteSpinner.setEditable(true);
+        ComboBox<LocalTime> slotBox = new ComboBox<>();
+        slotBox.setPromptText("Select a date first");
+        slotBox.setPrefWidth(200);
+        slotBox.setConverter(new StringConverter<>() {
+            @Override
+            public String toString(LocalTime time) {
+                return time == null ? "" : SchedulingEngine.format(time);
+            }
 
-        Spinner<String> ampmSpinner = new Spinner<>();
-        ampmSpinner.setValueFactory(new SpinnerValueFactory.ListSpinnerValueFactory<>(
-                FXCollections.observableArrayList("AM", "PM")
-        ));
-        ampmSpinner.getValueFactory().setValue("AM");
+            @Override
+            public LocalTime fromString(String text) {
+                return null;
+            }
+        });
 
-        HBox timeBox = new HBox(5, hourSpinner, new Label(":"), minuteSpinner, ampmSpinner);
-        timeBox.setAlignment(Pos.CENTER);
+        // Standing weekly bookings, e.g. dialysis or physiotherapy.
+        CheckBox repeatBox = new CheckBox("Repeat weekly");
+        ComboBox<Integer> intervalBox = new ComboBox<>();
+        intervalBox.getItems().addAll(1, 2, 4);
+        intervalBox.setValue(1);
+        Spinner<Integer> countSpinner = new Spinner<>(2, 52, 12);
+        countSpinner.setPrefWidth(80);
+        HBox repeatOptions = new HBox(8, new Label("Every"), intervalBox, new Label("week(s),"), countSpinner,
+                new Label("times"));
+        repeatOptions.setAlignment(Pos.CENTER);
+        repeatOptions.disableProperty().bind(repeatBox.selectedProperty().not());
 
         Button bookButton = new Button("Book Appointment");
         Button backButton = new Button("Back");
-
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(
-                     "SELECT assigned_doctor FROM patient_info WHERE username = ?")) {
-
-            stmt.setString(1, patientUsername);
-            ResultSet rs = stmt.executeQuery();
-
-            if (rs.next()) {
-                doctorField.setText(rs.getString("assigned_doctor"));
+        Button earliestButton = new Button("Earliest With My Doctor");
+        Button anyDoctorButton = new Button("Earliest With Any Doctor");
+        HBox earliestBox = new HBox(10, earliestButton, anyDoctorButton);
+        earliestBox.setAlignment(Pos.CENTER);
+
+        bookButton.setDisable(true);
+        earliestBox.setDisable(true);
+        Async.load(() -> PatientRepository.findByUsername(patientUsername), patient -> {
+            if (patient != null && patient.getAssignedDoctor() != null) {
+                doctorField.setUserData(patient.getAssignedDoctor());
+                doctorField.setText(patient.getAssignedDoctorName() != null
+                        ? patient.getAssignedDoctorName() : patient.getAssignedDoctor());
+                bookButton.setDisable(false);
+                earliestBox.setDisable(false);
+                loadSlots(slotBox, patient.getAssignedDoctor(), datePicker.getValue(), null);
+
+                User assigned = new User(patient.getAssignedDoctor(), null, "doctor", patient.getAssignedDoctorName(), null);
+                earliestButton.setOnAction(e -> showEarliest(() -> List.of(assigned), doctorField, datePicker, slotBox));
+                anyDoctorButton.setOnAction(e -> showEarliest(() -> {
+                    List<User> doctors = new ArrayList<>(StaffDirectory.doctors());
+                    doctors.sort(Comparator.comparing(doctor -> !doctor.getUsername().equals(assigned.getUsername())));
+                    return doctors;
+                }, doctorField, datePicker, slotBox));
             } else {
                 Utils.showError("Assigned doctor not found.");
-                return;
+                PatientDashboardController.showPatientDashboard(stage, patientUsername);
             }
-
-        } catch (Exception e) {
+        }, e -> {
             e.printStackTrace();
             Utils.showError("Error loading assigned doctor.");
-            return;
-        }
+            PatientDashboardController.showPatientDashboard(stage, patientUsername);
+        });
+
+        datePicker.setOnAction(e -> loadSlots(slotBox, (String) doctorField.getUserData(), datePicker.getValue(), null));
 
         bookButton.setOnAction(e -> {
             LocalDate date = datePicker.getValue();
-            int hour = hourSpinner.getValue();
-            int minute = minuteSpinner.getValue();
-            String ampm = ampmSpinner.getValue();
-            String doctor = doctorField.getText().trim();
+            LocalTime slot = slotBox.getValue();
+            String doctor = (String) doctorField.getUserData();
 
             if (date == null) {
                 Utils.showError("Please select a date.");
                 return;
             }
+            if (slot == null) {
+                Utils.showError("Please select a time slot.");
+                return;
+            }
 
-            String time = String.format("%02d:%02d %s", hour, minute, ampm);
-
-            try (Connection conn = DBConnection.getConnection()) {
-                String sql = "INSERT INTO appointments (doctor, patient_name, appointment_date, appointment_time) VALUES (?, ?, ?, ?)";
-                PreparedStatement stmt = conn.prepareStatement(sql);
-                stmt.setString(1, doctor);
-                stmt.setString(2, patientUsername);
-                stmt.setString(3, date.toString());
-                stmt.setString(4, time);
-                stmt.executeUpdate();
-
-                Utils.showInfo("Appointment booked successfully.");
+            bookButton.setDisable(true);
+            CompletableFuture<Long> booking = repeatBox.isSelected()
+                    ? SchedulingEngine.bookSeries(doctor, patientUsername, date.atTime(slot),
+                            Recurrence.weekly(intervalBox.getValue(), countSpinner.getValue()))
+                    : SchedulingEngine.book(doctor, patientUsername, date, slot);
+            Async.onFx(booking, id -> {
+                Utils.showInfo(repeatBox.isSelected() ? countSpinner.getValue() + " appointments booked successfully."
+                        : "Appointment booked successfully.");
                 PatientDashboardController.showPatientDashboard(stage, patientUsername);
-            } catch (Exception ex) {
+            }, ex -> {
+                bookButton.setDisable(false);
+                if (ex instanceof SchedulingConflictException) {
+                    Utils.showError(ex.getMessage());
+                    loadSlots(slotBox, doctor, date, null);
+                    return;
+                }
+                if (BusyRetry.isBusy(ex)) {
+                    Utils.showError("Another workstation is saving changes; please try again in a moment.");
+                    return;
+                }
                 ex.printStackTrace();
                 Utils.showError("Error: " + ex.getMessage());
-            }
+            });
         });
 
         backButton.setOnAction(e -> PatientDashboardController.showPatientDashboard(stage, patientUsername));
 
         root.getChildren().addAll(
                 title,
-                new Label("Assigned Doctor:"),
+                new Label("Doctor:"),
                 doctorField,
+                earliestBox,
                 new Label("Select Date:"),
                 datePicker,
                 new Label("Select Time:"),
-                timeBox,
+                slotBox,
+                repeatBox,
+                repeatOptions,
                 bookButton,
                 backButton
         );
 
-        stage.setScene(new Scene(root, 400, 450));
+        stage.setScene(new Scene(root, 420, 580));
         stage.setTitle("Book Appointment");
         stage.show();
     }
+
+    // Each request is tagged on the box, and a response that a later request has overtaken (a quick change of
+    // date or doctor, or a slower earlier load) is dropped, so the list always belongs to the date on the picker.
+    private static void loadSlots(ComboBox<LocalTime> slotBox, String doctor, LocalDate date, LocalTime select) {
+        long request = ++slotRequests;
+        slotBox.getProperties().put(SLOT_REQUEST, request);
+        slotBox.setValue(null);
+        slotBox.getItems().clear();
+        if (doctor == null || date == null) return;
+
+        slotBox.setPromptText("Loading slots...");
+        Async.load(() -> SchedulingEngine.freeSlots(doctor, date), slots -> {
+            if (!isCurrent(slotBox, request)) return;
+            slotBox.getItems().setAll(slots);
+            slotBox.setPromptText(slots.isEmpty() ? "No free slots on this day" : "Select a time slot");
+            if (select != null && slots.contains(select)) {
+                slotBox.setValue(select);
+            }
+        }, e -> {
+            if (!isCurrent(slotBox, request)) return;
+            e.printStackTrace();
+            slotBox.setPromptText("Error loading slots");
+        });
+    }
+
+    private static boolean isCurrent(ComboBox<LocalTime> slotBox, long request) {
+        return Long.valueOf(request).equals(slotBox.getProperties().get(SLOT_REQUEST));
+    }
+
+    private record Earliest(User doctor, SchedulingEngine.Slot slot) {}
+
+    // Searches the doctors in order of preference and fills the form with the first open slot found.
+    private static void showEarliest(Async.Task<List<User>> candidates, TextField doctorField, DatePicker datePicker,
+                                     ComboBox<LocalTime> slotBox) {
+        Async.load(() -> {
+            List<User> doctors = candidates.call();
+            List<String> usernames = new ArrayList<>();
+            for (User doctor : doctors) {
+                usernames.add(doctor.getUsername());
+            }
+            SchedulingEngine.Slot slot = SchedulingEngine.findEarliest(usernames, SEARCH_DAYS);
+            for (User doctor : doctors) {
+                if (slot != null && doctor.getUsername().equals(slot.doctorUsername())) {
+                    return new Earliest(doctor, slot);
+                }
+            }
+            return null;
+        }, earliest -> {
+            if (earliest == null) {
+                Utils.showError("No open slots in the next " + SEARCH_DAYS + " days.");
+                return;
+            }
+            User doctor = earliest.doctor();
+            doctorField.setUserData(doctor.getUsername());
+            doctorField.setText(doctor.getName() != null ? doctor.getName() : doctor.getUsername());
+            // Setting the value fires the picker's own slot load; it is held back so only the preselecting one runs.
+            EventHandler<ActionEvent> onDateChosen = datePicker.getOnAction();
+            datePicker.setOnAction(null);
+            datePicker.setValue(earliest.slot().start().toLocalDate());
+            datePicker.setOnAction(onDateChosen);
+            loadSlots(slotBox, doctor.getUsername(), earliest.slot().start().toLocalDate(), earliest.slot().start().toLocalTime());
+        }, e -> {
+            e.printStackTrace();
+            Utils.showError("Error searching for open slots.");
+        });
+    }
 }
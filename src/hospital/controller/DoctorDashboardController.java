@@ -1,8 +1,24 @@
 package hospital.controller;
 
-import hospital.model.DBConnection;
+import hospital.model.AgendaEntry;
+import hospital.model.Patient;
+import hospital.model.User;
+import hospital.model.WorkingHours;
+import hospital.model.WriteQueue;
+import hospital.repository.AppointmentRepository;
+import hospital.repository.DashboardSnapshot;
+import hospital.repository.PatientRepository;
+import hospital.repository.ScheduleRepository;
+import hospital.repository.UserRepository;
+import hospital.service.DisplayNames;
+import hospital.service.PatientRoster;
+import hospital.service.SchedulingEngine;
+import hospital.service.StaffDirectory;
 import hospital.ui.Components;
 import hospital.ui.LayoutHelper;
+import hospital.util.Async;
+import hospital.util.PaintTimer;
+import hospital.util.SearchPipeline;
 import hospital.util.Utils;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
@@ -11,15 +27,21 @@ import javafx.scene.layout.VBox;
 import javafx.scene.layout.HBox;
 import javafx.stage.Stage;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 public class DoctorDashboardController {
 
     private Stage stage;
     private String username;
 
+    // Filled from one DashboardSnapshot read, each as soon as it has been read.
+    private VBox assignedNurses;
+    private VBox appointmentList;
+    private SearchPipeline<List<Patient>> patientSearch;
+
     public DoctorDashboardController(Stage stage, String username) {
         this.stage = stage;
         this.username = username;
@@ -29,8 +51,10 @@ public class DoctorDashboardController {
         VBox root = LayoutHelper.createBaseLayout();
         root.setStyle("-fx-background-color: #ecf0f1;");
 
-        String doctorDisplayName = getDoctorDisplayName();
-        Label header = LayoutHelper.createSectionHeader("Doctor Dashboard - " + doctorDisplayName);
+        Label header = LayoutHelper.createSectionHeader("Doctor Dashboard");
+        Async.load(this::getDoctorDisplayName,
+            doctorDisplayName -> header.setText("Doctor Dashboard - " + doctorDisplayName),
+            Throwable::printStackTrace);
 
         ScrollPane scrollPane = new ScrollPane();
         VBox contentBox = new VBox(15);
@@ -41,6 +65,7 @@ public class DoctorDashboardController {
         VBox patientBox = getPatients();
 
         contentBox.getChildren().addAll(nurseSection, appointmentBox, patientBox);
+        loadSections();
         scrollPane.setContent(contentBox);
         scrollPane.setPrefHeight(400);
         scrollPane.setFitToWidth(true);
@@ -53,11 +78,19 @@ public class DoctorDashboardController {
         addPatientBtn.setPrefWidth(150);
         addPatientBtn.setOnAction(e -> SignupController.showSignup(stage, "doctor", username));
 
+        Button searchNotesBtn = Components.createButton("Search Notes");
+        searchNotesBtn.setPrefWidth(150);
+        searchNotesBtn.setOnAction(e -> new NoteSearchController(username, "doctor").show());
+
+        Button hoursBtn = Components.createButton("Working Hours");
+        hoursBtn.setPrefWidth(150);
+        hoursBtn.setOnAction(e -> showWorkingHoursDialog());
+
         Button logoutBtn = Components.createButton("Logout");
         logoutBtn.setPrefWidth(150);
         logoutBtn.setOnAction(e -> LoginController.showLogin(stage));
 
-        HBox buttonBox = new HBox(10, refreshBtn, addPatientBtn, logoutBtn);
+        HBox buttonBox = new HBox(10, refreshBtn, addPatientBtn, searchNotesBtn, hoursBtn, logoutBtn);
         buttonBox.setAlignment(Pos.CENTER);
 
         root.getChildren().addAll(header, scrollPane, buttonBox);
@@ -68,18 +101,8 @@ public class DoctorDashboardController {
         stage.show();
     }
 
-    private String getDoctorDisplayName() {
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement("SELECT name FROM users WHERE username = ? AND LOWER(role) = 'doctor'")) {
-            stmt.setString(1, username);
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next() && rs.getString("name") != null) {
-                return rs.getString("name");
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-        return "Dr. " + username;
+    private String getDoctorDisplayName() throws Exception {
+        return DisplayNames.of(username);
     }
 
     private VBox getNurseAssignmentSection() {
@@ -90,72 +113,15 @@ public class DoctorDashboardController {
         Label sectionTitle = LayoutHelper.createSectionHeader("My Assigned Nurses");
         box.getChildren().add(sectionTitle);
 
-        VBox assignedNurses = new VBox(5);
-        Label assignedLabel = LayoutHelper.createBoldLabel("Currently Assigned Nurses:");
-        assignedNurses.getChildren().add(assignedLabel);
-
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement("SELECT nurse_username FROM doctor_nurse_assignment WHERE doctor_username = ?")) {
-            stmt.setString(1, username);
-            ResultSet rs = stmt.executeQuery();
-
-            boolean hasNurses = false;
-            while (rs.next()) {
-                hasNurses = true;
-                String nurseUsername = rs.getString("nurse_username");
-                String nurseDisplayName = getNurseDisplayName(nurseUsername);
-
-                HBox nurseRow = new HBox(10);
-                nurseRow.setAlignment(Pos.CENTER_LEFT);
-                Label nurseLabel = new Label("• " + nurseDisplayName + " (" + nurseUsername + ")");
-
-                Button removeBtn = new Button("Remove");
-                removeBtn.setPrefWidth(100);
-                removeBtn.setStyle(
-                    "-fx-background-color: #e74c3c; " +
-                    "-fx-text-fill: white; " +
-                    "-fx-background-radius: 5; " +
-                    "-fx-border-radius: 5; " +
-                    "-fx-font-weight: bold;"
-                );
-                
-                removeBtn.setOnMouseEntered(e -> removeBtn.setStyle(
-                    "-fx-background-color: #c0392b; " +
-                    "-fx-text-fill: white; " +
-                    "-fx-background-radius: 5; " +
-                    "-fx-border-radius: 5; " +
-                    "-fx-font-weight: bold;"
-                ));
-                
-                removeBtn.setOnMouseExited(e -> removeBtn.setStyle(
-                    "-fx-background-color: #e74c3c; " +
-                    "-fx-text-fill: white; " +
-                    "-fx-background-radius: 5; " +
-                    "-fx-border-radius: 5; " +
-                    "-fx-font-weight: bold;"
-                ));
-                
-                removeBtn.setOnAction(e -> {
-                    removeNurse(nurseUsername);
-                    showDoctorView();
-                });
-
-                nurseRow.getChildren().addAll(nurseLabel, removeBtn);
-                assignedNurses.getChildren().add(nurseRow);
-            }
-
-            if (!hasNurses) {
-                assignedNurses.getChildren().add(new Label("No nurses currently assigned."));
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        assignedNurses = new VBox(5);
+        assignedNurses.getChildren().addAll(LayoutHelper.createBoldLabel("Currently Assigned Nurses:"),
+                LayoutHelper.createPlaceholder("Loading nurses..."));
 
         HBox nurseAssignBox = new HBox(10);
         nurseAssignBox.setAlignment(Pos.CENTER_LEFT);
 
         ComboBox<String> availableNurses = new ComboBox<>();
-        availableNurses.setPromptText("Select nurse to assign");
+        availableNurses.setPromptText("Loading nurses...");
         availableNurses.setPrefWidth(300);
         loadAvailableNurses(availableNurses);
 
@@ -164,16 +130,15 @@ public class DoctorDashboardController {
         assignNurseBtn.setOnAction(e -> {
             String selected = availableNurses.getValue();
             if (selected != null) {
-                
+
                 if (selected.startsWith("⚠️")) {
                     Utils.showError("This nurse is already assigned to another doctor and cannot be reassigned.");
                     return;
                 }
-                
+
                 if (selected.contains("(")) {
                     String selectedUsername = selected.substring(selected.indexOf("(") + 1, selected.indexOf(")"));
                     assignNurseToDoctor(selectedUsername);
-                    showDoctorView();
                 } else {
                     Utils.showError("Please select a valid nurse.");
                 }
@@ -187,99 +152,161 @@ public class DoctorDashboardController {
         return box;
     }
 
-    private void removeNurse(String nurseUsername) {
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement("DELETE FROM doctor_nurse_assignment WHERE nurse_username = ? AND doctor_username = ?")) {
-            stmt.setString(1, nurseUsername);
-            stmt.setString(2, username);
-            stmt.executeUpdate();
-            Utils.showInfo("Nurse removed successfully.");
-        } catch (Exception e) {
+    // The nurses, today's appointments and the patient roster are read in one read transaction, so they show
+    // the database as of one moment even while other workstations write. Each section is handed to the FX
+    // thread as soon as it has been read rather than when the transaction ends. A roster already in memory
+    // is only rebuilt if its stamp has moved.
+    private void loadSections() {
+        VBox nurses = assignedNurses;
+        VBox appointments = appointmentList;
+        SearchPipeline<List<Patient>> patients = patientSearch;
+        PaintTimer paint = PaintTimer.start("doctor", "nurses", "appointments", "patients");
+        PatientRoster roster = PatientRoster.forDoctor(username);
+
+        Async.load(() -> DashboardSnapshot.read("doctor", conn -> {
+            List<User> nurseRows = UserRepository.findNursesOfDoctor(conn, username);
+            Async.runOnFx(() -> {
+                showNurses(nurses, nurseRows);
+                paint.painted("nurses");
+            });
+            List<AgendaEntry> agenda = AppointmentRepository.findDailyAgenda(conn, List.of(username), LocalDate.now());
+            Async.runOnFx(() -> {
+                showAppointments(appointments, agenda);
+                paint.painted("appointments");
+            });
+            List<Patient> found = roster.search(conn, null);
+            Async.runOnFx(() -> {
+                patients.seed(found);
+                paint.painted("patients");
+            });
+            return null;
+        }), done -> {}, e -> {
             e.printStackTrace();
-            Utils.showError("Failed to remove nurse.");
+            if (!paint.isPainted("nurses")) {
+                nurses.getChildren().set(1, new Label("Error loading nurses."));
+                paint.painted("nurses");
+            }
+            if (!paint.isPainted("appointments")) {
+                appointments.getChildren().setAll(new Label("Error loading appointments."));
+                paint.painted("appointments");
+            }
+            if (!paint.isPainted("patients")) {
+                patients.submitNow(null);
+                paint.painted("patients");
+            }
+        });
+    }
+
+    private void showNurses(VBox box, List<User> nurses) {
+        box.getChildren().remove(1, box.getChildren().size());
+        for (User nurse : nurses) {
+            box.getChildren().add(createNurseRow(nurse));
+        }
+        if (nurses.isEmpty()) {
+            box.getChildren().add(new Label("No nurses currently assigned."));
         }
     }
 
-    private String getNurseDisplayName(String nurseUsername) {
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement("SELECT name FROM users WHERE username = ? AND LOWER(role) = 'nurse'")) {
-            stmt.setString(1, nurseUsername);
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next() && rs.getString("name") != null) {
-                return rs.getString("name");
-            }
-        } catch (Exception e) {
+    private HBox createNurseRow(User nurse) {
+        HBox nurseRow = new HBox(10);
+        nurseRow.setAlignment(Pos.CENTER_LEFT);
+        Label nurseLabel = new Label("• " + nurse.getDisplayName() + " (" + nurse.getUsername() + ")");
+
+        Button removeBtn = new Button("Remove");
+        removeBtn.setPrefWidth(100);
+        removeBtn.setStyle(
+            "-fx-background-color: #e74c3c; " +
+            "-fx-text-fill: white; " +
+            "-fx-background-radius: 5; " +
+            "-fx-border-radius: 5; " +
+            "-fx-font-weight: bold;"
+        );
+
+        removeBtn.setOnMouseEntered(e -> removeBtn.setStyle(
+            "-fx-background-color: #c0392b; " +
+            "-fx-text-fill: white; " +
+            "-fx-background-radius: 5; " +
+            "-fx-border-radius: 5; " +
+            "-fx-font-weight: bold;"
+        ));
+
+        removeBtn.setOnMouseExited(e -> removeBtn.setStyle(
+            "-fx-background-color: #e74c3c; " +
+            "-fx-text-fill: white; " +
+            "-fx-background-radius: 5; " +
+            "-fx-border-radius: 5; " +
+            "-fx-font-weight: bold;"
+        ));
+
+        removeBtn.setOnAction(e -> removeNurse(nurse.getUsername()));
+
+        nurseRow.getChildren().addAll(nurseLabel, removeBtn);
+        return nurseRow;
+    }
+
+    private void removeNurse(String nurseUsername) {
+        Async.onFx(WriteQueue.submit(conn -> UserRepository.removeNurse(conn, username, nurseUsername)), removed -> {
+            PatientRoster.recheck();
+            Utils.showInfo("Nurse removed successfully.");
+            showDoctorView();
+        }, e -> {
             e.printStackTrace();
-        }
-        return nurseUsername;
+            Utils.showError("Failed to remove nurse.");
+        });
     }
 
     private void loadAvailableNurses(ComboBox<String> nurseBox) {
-        nurseBox.getItems().clear();
-        try (Connection conn = DBConnection.getConnection()) {
-            
-            PreparedStatement currentStmt = conn.prepareStatement(
-                "SELECT u.username, u.name FROM users u " +
-                "WHERE LOWER(u.role) = 'nurse' AND u.username IN " +
-                "(SELECT nurse_username FROM doctor_nurse_assignment WHERE doctor_username = ?)");
-            currentStmt.setString(1, username);
-            ResultSet currentRs = currentStmt.executeQuery();
-            while (currentRs.next()) {
-                String uname = currentRs.getString("username");
-                String name = currentRs.getString("name");
-                String displayName = name != null ? name : uname;
-                nurseBox.getItems().add(displayName + " (" + uname + ")");
+        StaffDirectory.Snapshot known = StaffDirectory.peek();
+        if (known != null) {
+            nurseBox.getItems().setAll(findAvailableNurses(known));
+            nurseBox.setPromptText("Select nurse to assign");
+        }
+        Async.load(StaffDirectory::current, staff -> {
+            if (staff != known) {
+                nurseBox.getItems().setAll(findAvailableNurses(staff));
+                nurseBox.setPromptText("Select nurse to assign");
             }
+        }, e -> {
+            e.printStackTrace();
+            nurseBox.setPromptText("Error loading nurses");
+        });
+    }
 
-            
-            PreparedStatement conflictStmt = conn.prepareStatement(
-                "SELECT u.username, u.name, d.doctor_username FROM users u " +
-                "JOIN doctor_nurse_assignment d ON u.username = d.nurse_username " +
-                "WHERE LOWER(u.role) = 'nurse' AND d.doctor_username != ?");
-            conflictStmt.setString(1, username);
-            ResultSet conflictRs = conflictStmt.executeQuery();
-            while (conflictRs.next()) {
-                String uname = conflictRs.getString("username");
-                String name = conflictRs.getString("name");
-                String assignedDoctor = conflictRs.getString("doctor_username");
-                String displayName = name != null ? name : uname;
-                nurseBox.getItems().add("⚠️ " + displayName + " (" + uname + ") [Assigned to " + assignedDoctor + "]");
-            }
-            
-            PreparedStatement unassignedStmt = conn.prepareStatement(
-                "SELECT u.username, u.name FROM users u " +
-                "WHERE LOWER(u.role) = 'nurse' AND u.username NOT IN " +
-                "(SELECT nurse_username FROM doctor_nurse_assignment)");
-            ResultSet unassignedRs = unassignedStmt.executeQuery();
-            while (unassignedRs.next()) {
-                String uname = unassignedRs.getString("username");
-                String name = unassignedRs.getString("name");
-                String displayName = name != null ? name : uname;
-                nurseBox.getItems().add(displayName + " (" + uname + ")");
+    private List<String> findAvailableNurses(StaffDirectory.Snapshot staff) {
+        Map<String, String> assignments = staff.nurseAssignments();
+        List<String> current = new ArrayList<>();
+        List<String> conflicts = new ArrayList<>();
+        List<String> unassigned = new ArrayList<>();
+
+        for (User nurse : staff.nurses()) {
+            String uname = nurse.getUsername();
+            String displayName = nurse.getName() != null ? nurse.getName() : uname;
+            String assignedDoctor = assignments.get(uname);
+
+            if (assignedDoctor == null) {
+                unassigned.add(displayName + " (" + uname + ")");
+            } else if (assignedDoctor.equals(username)) {
+                current.add(displayName + " (" + uname + ")");
+            } else {
+                conflicts.add("⚠️ " + displayName + " (" + uname + ") [Assigned to " + assignedDoctor + "]");
             }
-        } catch (Exception e) {
-            e.printStackTrace();
         }
+
+        List<String> items = new ArrayList<>(current);
+        items.addAll(conflicts);
+        items.addAll(unassigned);
+        return items;
     }
 
     private void assignNurseToDoctor(String nurseUsername) {
-        try (Connection conn = DBConnection.getConnection()) {
-            PreparedStatement deleteStmt = conn.prepareStatement("DELETE FROM doctor_nurse_assignment WHERE nurse_username = ?");
-            deleteStmt.setString(1, nurseUsername);
-            deleteStmt.executeUpdate();
-
-            PreparedStatement insertStmt = conn.prepareStatement(
-                "INSERT INTO doctor_nurse_assignment (doctor_username, nurse_username) VALUES (?, ?)");
-            insertStmt.setString(1, username);
-            insertStmt.setString(2, nurseUsername);
-            insertStmt.executeUpdate();
-
-            String nurseDisplayName = getNurseDisplayName(nurseUsername);
+        Async.onFx(WriteQueue.submit(conn -> UserRepository.assignNurse(conn, username, nurseUsername)).thenCompose(inserted -> Async.supply(() -> DisplayNames.of(nurseUsername))), nurseDisplayName -> {
+            PatientRoster.recheck();
             Utils.showInfo("Nurse " + nurseDisplayName + " assigned successfully!");
-        } catch (Exception e) {
+            showDoctorView();
+        }, e -> {
             e.printStackTrace();
             Utils.showError("Failed to assign nurse.");
-        }
+        });
     }
 
     private VBox getAppointments() {
@@ -288,36 +315,24 @@ public class DoctorDashboardController {
     box.setStyle("-fx-border-color: #bdc3c7; -fx-border-width: 1; -fx-padding: 15;");
 
     Label sectionTitle = LayoutHelper.createSectionHeader("Today's Appointments");
-    box.getChildren().add(sectionTitle);
+    appointmentList = new VBox(10, LayoutHelper.createPlaceholder("Loading appointments..."));
+    box.getChildren().addAll(sectionTitle, appointmentList);
+    return box;
+    }
 
-    try (Connection conn = DBConnection.getConnection();
-         PreparedStatement stmt = conn.prepareStatement(
-             "SELECT * FROM appointments WHERE doctor = ? AND appointment_date <= DATE('now')"
-         )) {
-            stmt.setString(1, getDoctorDisplayName());
-            ResultSet rs = stmt.executeQuery();
-
-            boolean hasAppointments = false;
-            while (rs.next()) {
-                hasAppointments = true;
-                String patient = rs.getString("patient_name");
-                String date = rs.getString("appointment_date");
-                String time = rs.getString("appointment_time");
-
-                String patientName = getPatientDisplayName(patient);
-                Label label = LayoutHelper.createBoldLabel("● " + patientName + " at " + date + " " + time);
-                box.getChildren().add(label);
-            }
+    private void showAppointments(VBox box, List<AgendaEntry> appointments) {
+        box.getChildren().clear();
+        for (AgendaEntry appointment : appointments) {
+            Label label = LayoutHelper.createBoldLabel("● " + appointment.getPatientName() + " at "
+                    + appointment.getAppointmentDate() + " " + appointment.getAppointmentTime());
+            box.getChildren().add(label);
+        }
 
-            if (!hasAppointments) {
-                box.getChildren().add(new Label("No appointments scheduled for today."));
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
+        if (appointments.isEmpty()) {
+            box.getChildren().add(new Label("No appointments scheduled for today."));
         }
-        return box;
     }
-    
+
     private VBox getPatients() {
     VBox box = new VBox(15);
     box.setAlignment(Pos.CENTER_LEFT);
@@ -331,15 +346,21 @@ public class DoctorDashboardController {
     searchField.setPrefWidth(300);
     box.getChildren().add(searchField);
 
-    VBox patientList = new VBox(10);
-    patientList.setAlignment(Pos.CENTER_LEFT);
+    Label placeholder = LayoutHelper.createPlaceholder("Loading patients...");
+    ListView<Patient> patientList = new ListView<>();
+    patientList.setCellFactory(list -> new PatientCell());
+    patientList.setPlaceholder(placeholder);
+    patientList.setPrefHeight(300);
     box.getChildren().add(patientList);
 
-    loadPatients(null, patientList);
-
-    searchField.textProperty().addListener((obs, oldVal, newVal) -> {
-        loadPatients(newVal.trim(), patientList);
-    });
+    patientSearch = new SearchPipeline<>(this::findPatients, patients -> {
+        patientList.getItems().setAll(patients);
+        placeholder.setText("No patients found.");
+    }, e -> {
+        e.printStackTrace();
+        patientList.getItems().clear();
+        placeholder.setText("Error loading patients.");
+    }).attach(searchField);
 
     return box;
 }
@@ -353,21 +374,23 @@ public class DoctorDashboardController {
         layout.setPadding(new javafx.geometry.Insets(20));
 
         Label instruction = new Label("Select new doctor for " + patientName + ":");
-        ComboBox<String> doctorBox = new ComboBox<>();
+        ComboBox<User> doctorBox = Components.createUserComboBox("Loading doctors...");
         doctorBox.setPrefWidth(250);
 
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement("SELECT username, name FROM users WHERE LOWER(role) = 'doctor'");
-             ResultSet rs = stmt.executeQuery()) {
-            while (rs.next()) {
-                String doctorUsername = rs.getString("username");
-                String doctorName = rs.getString("name");
-                String displayText = doctorName != null ? doctorName + " (" + doctorUsername + ")" : "Dr. " + doctorUsername;
-                doctorBox.getItems().add("Dr. "+doctorName);
+        StaffDirectory.Snapshot known = StaffDirectory.peek();
+        if (known != null) {
+            doctorBox.getItems().setAll(known.doctors());
+            doctorBox.setPromptText(null);
+        }
+        Async.load(StaffDirectory::current, staff -> {
+            if (staff != known) {
+                doctorBox.getItems().setAll(staff.doctors());
+                doctorBox.setPromptText(null);
             }
-        } catch (Exception e) {
+        }, e -> {
             e.printStackTrace();
-        }
+            doctorBox.setPromptText("Error loading doctors");
+        });
 
         Button saveBtn = Components.createButton("Save");
         Button cancelBtn = Components.createButton("Cancel");
@@ -376,22 +399,17 @@ public class DoctorDashboardController {
         buttonBox.setAlignment(Pos.CENTER);
 
         saveBtn.setOnAction(e -> {
-            String selectedDoctor = doctorBox.getValue();
-            if (selectedDoctor != null && !selectedDoctor.isEmpty()) {
-                try (Connection conn = DBConnection.getConnection();
-                     PreparedStatement stmt = conn.prepareStatement("UPDATE patient_info SET assigned_doctor = ? WHERE username = ?")) {
-                    stmt.setString(1, selectedDoctor);
-                    stmt.setString(2, patientUsername);
-                    stmt.executeUpdate();
-
-                    String doctorDisplayName = getDoctorDisplayName(selectedDoctor);
-                    Utils.showInfo("Patient " + patientName + " assigned to " + doctorDisplayName + " successfully!");
+            User selectedDoctor = doctorBox.getValue();
+            if (selectedDoctor != null) {
+                Async.onFx(WriteQueue.submit(conn -> PatientRepository.assignDoctor(conn, patientUsername, selectedDoctor.getUsername())), updated -> {
+                    PatientRoster.recheck();
+                    Utils.showInfo("Patient " + patientName + " assigned to " + selectedDoctor.getDisplayName() + " successfully!");
                     dialog.close();
                     showDoctorView();
-                } catch (Exception ex) {
+                }, ex -> {
                     ex.printStackTrace();
                     Utils.showError("Failed to change doctor.");
-                }
+                });
             } else {
                 Utils.showError("Please select a doctor.");
             }
@@ -404,92 +422,101 @@ public class DoctorDashboardController {
         dialog.show();
     }
 
-    private String getDoctorDisplayName(String doctorUsername) {
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement("SELECT name FROM users WHERE username = ? AND LOWER(role) = 'doctor'")) {
-            stmt.setString(1, doctorUsername);
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next() && rs.getString("name") != null) {
-                return rs.getString("name");
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-        return "Dr. " + doctorUsername;
-    }
-
-    private String getPatientDisplayName(String username) {
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement("SELECT name FROM patient_info WHERE username = ?")) {
-            stmt.setString(1, username);
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                return rs.getString("name");
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-        return username;
-    }
-    
-    private void loadPatients(String filter, VBox container) {
-    container.getChildren().clear();
+    private void showWorkingHoursDialog() {
+        Stage dialog = new Stage();
+        dialog.setTitle("Working Hours");
 
-    String baseQuery = "SELECT * FROM patient_info WHERE (assigned_doctor = ? OR assigned_doctor = ?)";
-    boolean hasFilter = filter != null && !filter.isEmpty();
+        VBox layout = new VBox(15);
+        layout.setAlignment(Pos.CENTER);
+        layout.setPadding(new javafx.geometry.Insets(20));
 
-    if (hasFilter) {
-        baseQuery += " AND LOWER(name) LIKE ?";
-    }
+        ComboBox<Integer> startBox = new ComboBox<>();
+        ComboBox<Integer> endBox = new ComboBox<>();
+        for (int hour = 0; hour <= 24; hour++) {
+            if (hour < 24) startBox.getItems().add(hour);
+            if (hour > 0) endBox.getItems().add(hour);
+        }
+        ComboBox<Integer> slotBox = new ComboBox<>();
+        slotBox.getItems().addAll(10, 15, 20, 30, 45, 60);
 
-    try (Connection conn = DBConnection.getConnection();
-         PreparedStatement stmt = conn.prepareStatement(baseQuery)) {
+        Button saveBtn = Components.createButton("Save");
+        Button cancelBtn = Components.createButton("Cancel");
+        saveBtn.setDisable(true);
+
+        Async.load(() -> ScheduleRepository.findHours(username), hours -> {
+            startBox.setValue(hours.getStartMinute() / 60);
+            endBox.setValue(hours.getEndMinute() / 60);
+            slotBox.setValue(hours.getSlotMinutes());
+            saveBtn.setDisable(false);
+        }, e -> {
+            e.printStackTrace();
+            Utils.showError("Failed to load working hours.");
+        });
 
-        stmt.setString(1, username);
-        stmt.setString(2, getDoctorDisplayName());
+        saveBtn.setOnAction(e -> {
+            WorkingHours hours = new WorkingHours(startBox.getValue() * 60, endBox.getValue() * 60, slotBox.getValue());
+            if (hours.getStartMinute() + hours.getSlotMinutes() > hours.getEndMinute()) {
+                Utils.showError("The day must end after it starts and fit at least one slot.");
+                return;
+            }
+            Async.onFx(WriteQueue.submit(conn -> ScheduleRepository.saveHours(conn, username, hours)), rows -> {
+                SchedulingEngine.invalidateDoctor(username);
+                Utils.showInfo("Working hours saved.");
+                dialog.close();
+            }, ex -> {
+                ex.printStackTrace();
+                Utils.showError("Failed to save working hours.");
+            });
+        });
+        cancelBtn.setOnAction(e -> dialog.close());
 
-        if (hasFilter) {
-            stmt.setString(3, "%" + filter.toLowerCase() + "%");
-        }
+        HBox hoursBox = new HBox(10, new Label("From"), startBox, new Label("to"), endBox, new Label(":00"));
+        hoursBox.setAlignment(Pos.CENTER);
+        HBox slotRow = new HBox(10, new Label("Slot length (minutes)"), slotBox);
+        slotRow.setAlignment(Pos.CENTER);
+        HBox buttonBox = new HBox(10, saveBtn, cancelBtn);
+        buttonBox.setAlignment(Pos.CENTER);
 
-        ResultSet rs = stmt.executeQuery();
-        boolean found = false;
+        layout.getChildren().addAll(hoursBox, slotRow, buttonBox);
+        dialog.setScene(new Scene(layout, 420, 200));
+        dialog.show();
+    }
 
-        while (rs.next()) {
-            found = true;
-            String patientUsername = rs.getString("username");
-            String name = rs.getString("name");
+    // The roster is already in memory, so the ListView holds every match and only builds cells for the
+    // visible rows, reusing them as the list scrolls.
+    private class PatientCell extends ListCell<Patient> {
+        private final Label patientLabel = new Label();
+        private final Button editBtn = Components.createButton("Edit");
+        private final Button changeDoctorBtn = Components.createButton("Change Doctor");
+        private final HBox row = new HBox(10, patientLabel, editBtn, changeDoctorBtn);
 
-            HBox row = new HBox(10);
+        PatientCell() {
             row.setAlignment(Pos.CENTER_LEFT);
-
-            Label patientLabel = new Label("● " + name + " (" + patientUsername + ")");
             patientLabel.setPrefWidth(200);
-
-            Button editBtn = Components.createButton("Edit");
             editBtn.setPrefWidth(80);
-            editBtn.setOnAction(e -> new EditInfoController(name));
-
-            Button changeDoctorBtn = Components.createButton("Change Doctor");
             changeDoctorBtn.setPrefWidth(120);
-            changeDoctorBtn.setOnAction(e -> showChangeDoctorDialog(patientUsername, name));
-
-            row.getChildren().addAll(patientLabel, editBtn, changeDoctorBtn);
-            container.getChildren().add(row);
+            editBtn.setOnAction(e -> new EditInfoController(getItem().getName()));
+            changeDoctorBtn.setOnAction(e -> showChangeDoctorDialog(getItem().getUsername(), getItem().getName()));
         }
 
-        if (!found) {
-            container.getChildren().add(new Label("No patients found."));
-        }
+        @Override
+        protected void updateItem(Patient patient, boolean empty) {
+            super.updateItem(patient, empty);
+            if (empty || patient == null) {
+                setGraphic(null);
+                return;
+            }
 
-    } catch (Exception e) {
-        e.printStackTrace();
-        container.getChildren().add(new Label("Error loading patients."));
+            patientLabel.setText("● " + patient.getName() + " (" + patient.getUsername() + ")");
+            setGraphic(row);
+        }
     }
-}
 
+    private List<Patient> findPatients(String filter) throws Exception {
+        return PatientRoster.forDoctor(username).search(filter);
+    }
 
     public static void showDoctorDashboard(Stage stage, String username) {
         new DoctorDashboardController(stage, username).showDoctorView();
     }
-}
\ No newline at end of file
+}
@@ -1,8 +1,15 @@
 package hospital.controller;
 
-import hospital.model.DBConnection;
+import hospital.model.Patient;
+import hospital.model.User;
+import hospital.model.WriteQueue;
+import hospital.repository.PatientRepository;
+import hospital.repository.UserRepository;
+import hospital.service.DisplayNames;
+import hospital.service.PatientRoster;
 import hospital.ui.Components;
 import hospital.ui.LayoutHelper;
+import hospital.util.Async;
 import hospital.util.Utils;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
@@ -10,9 +17,6 @@ import javafx.scene.control.*;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.time.LocalDate;
 
 public class EditInfoController {
@@ -27,23 +31,24 @@ public class EditInfoController {
     }
 
     private void loadUsernameFromName() {
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement("SELECT username FROM users WHERE name = ?")) {
-            stmt.setString(1, name);
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    this.username = rs.getString("username");
-                    showEditInfoView();
-                } else {
-                    Utils.showError("No user found with the given name.");
-                    editStage.close();
-                }
+        Async.load(this::findUsername, found -> {
+            if (found != null) {
+                this.username = found;
+                showEditInfoView();
+            } else {
+                Utils.showError("No user found with the given name.");
+                editStage.close();
             }
-        } catch (Exception e) {
+        }, e -> {
             e.printStackTrace();
             Utils.showError("Failed to find user: " + e.getMessage());
             editStage.close();
-        }
+        });
+    }
+
+    private String findUsername() throws Exception {
+        User user = UserRepository.findByName(name);
+        return user != null ? user.getUsername() : null;
     }
 
     private void showEditInfoView() {
@@ -81,11 +86,12 @@ public class EditInfoController {
         updateBtn.setPrefWidth(200);
         cancelBtn.setPrefWidth(200);
 
-        loadPatientData(nameField, emailField, phoneField, genderCombo, dobPicker, bloodGroupCombo);
+        updateBtn.setDisable(true);
+        loadPatientData(nameField, emailField, phoneField, genderCombo, dobPicker, bloodGroupCombo, updateBtn);
 
         updateBtn.setOnAction(e -> updatePatientInfo(
                 nameField, usernameField, emailField, phoneField,
-                genderCombo, dobPicker, bloodGroupCombo
+                genderCombo, dobPicker, bloodGroupCombo, updateBtn
         ));
 
         cancelBtn.setOnAction(e -> editStage.close());
@@ -109,44 +115,46 @@ public class EditInfoController {
 
     private void loadPatientData(TextField nameField, TextField emailField, TextField phoneField,
                                  ComboBox<String> genderCombo, DatePicker dobPicker,
-                                 ComboBox<String> bloodGroupCombo) {
-        try (Connection conn = DBConnection.getConnection()) {
-            String query = "SELECT u.name, u.email, p.phone, p.gender, p.dob, p.blood_group " +
-                    "FROM users u JOIN patient_info p ON u.username = p.username WHERE u.username = ?";
-            try (PreparedStatement stmt = conn.prepareStatement(query)) {
-                stmt.setString(1, username);
-                try (ResultSet rs = stmt.executeQuery()) {
-                    if (rs.next()) {
-                        nameField.setText(rs.getString("name"));
-                        emailField.setText(rs.getString("email"));
-                        phoneField.setText(rs.getString("phone"));
-                        String gender = rs.getString("gender");
-                        if (gender != null) genderCombo.setValue(gender);
-                        String dob = rs.getString("dob");
-                        if (dob != null && !dob.isEmpty()) {
-                            try {
-                                dobPicker.setValue(LocalDate.parse(dob));
-                            } catch (Exception ignored) {}
-                        }
-                        String bloodGroup = rs.getString("blood_group");
-                        if (bloodGroup != null) bloodGroupCombo.setValue(bloodGroup);
-                    } else {
-                        Utils.showError("Patient information incomplete or missing.");
-                        editStage.close();
-                    }
+                                 ComboBox<String> bloodGroupCombo, Button updateBtn) {
+        Async.load(this::findPatientData, data -> {
+            if (data != null) {
+                Patient patient = data.patient();
+                nameField.setText(data.user().getName());
+                emailField.setText(data.user().getEmail());
+                phoneField.setText(patient.getPhone());
+                if (patient.getGender() != null) genderCombo.setValue(patient.getGender());
+                String dob = patient.getDob();
+                if (dob != null && !dob.isEmpty()) {
+                    try {
+                        dobPicker.setValue(LocalDate.parse(dob));
+                    } catch (Exception ignored) {}
                 }
+                if (patient.getBloodGroup() != null) bloodGroupCombo.setValue(patient.getBloodGroup());
+                updateBtn.setDisable(false);
+            } else {
+                Utils.showError("Patient information incomplete or missing.");
+                editStage.close();
             }
-        } catch (Exception e) {
+        }, e -> {
             e.printStackTrace();
             Utils.showError("Error loading patient information: " + e.getMessage());
             editStage.close();
+        });
+    }
+
+    private PatientData findPatientData() throws Exception {
+        User user = UserRepository.findByUsername(username);
+        Patient patient = PatientRepository.findByUsername(username);
+        if (user == null || patient == null) {
+            return null;
         }
+        return new PatientData(user, patient);
     }
 
     private void updatePatientInfo(TextField nameField, TextField usernameField,
                                TextField emailField, TextField phoneField,
                                ComboBox<String> genderCombo, DatePicker dobPicker,
-                               ComboBox<String> bloodGroupCombo) {
+                               ComboBox<String> bloodGroupCombo, Button updateBtn) {
 
     String newName = nameField.getText() != null ? nameField.getText().trim() : "";
     String newUsername = usernameField.getText() != null ? usernameField.getText().trim() : "";
@@ -172,36 +180,20 @@ public class EditInfoController {
         return;
     }
 
-    try (Connection conn = DBConnection.getConnection()) {
-        conn.setAutoCommit(false);
-
-        String userUpdateQuery = "UPDATE users SET username = ?, email = ?, name = ? WHERE username = ?";
-        try (PreparedStatement userStmt = conn.prepareStatement(userUpdateQuery)) {
-            userStmt.setString(1, newUsername);
-            userStmt.setString(2, newEmail);
-            userStmt.setString(3, newName);
-            userStmt.setString(4, username);
-            userStmt.executeUpdate();
-        }
-
-        String patientUpdateQuery = "UPDATE patient_info SET username = ?, name = ?, phone = ?, email = ?, gender = ?, dob = ?, blood_group = ? WHERE username = ?";
-        try (PreparedStatement patientStmt = conn.prepareStatement(patientUpdateQuery)) {
-            patientStmt.setString(1, newUsername);
-            patientStmt.setString(2, newName);
-            patientStmt.setString(3, phone);
-            patientStmt.setString(4, newEmail);
-            patientStmt.setString(5, gender);
-            patientStmt.setString(6, dob.toString());
-            patientStmt.setString(7, bloodGroup);
-            patientStmt.setString(8, username);
-            patientStmt.executeUpdate();
-        }
-
-        conn.commit();
+    updateBtn.setDisable(true);
+    Async.onFx(WriteQueue.submit(conn -> {
+        UserRepository.updateProfile(conn, username, newUsername, newName, newEmail);
+        PatientRepository.updateProfile(conn,
+                new Patient(newUsername, newName, phone, newEmail, gender, dob.toString(), bloodGroup, null, null));
+        return null;
+    }), done -> {
+        DisplayNames.invalidate(username);
+        DisplayNames.invalidate(newUsername);
+        PatientRoster.recheck();
         Utils.showInfo("Information updated successfully.");
         editStage.close();
-
-    } catch (Exception ex) {
+    }, ex -> {
+        updateBtn.setDisable(false);
         ex.printStackTrace();
         String msg = ex.getMessage() != null ? ex.getMessage().toLowerCase() : "";
 
@@ -212,8 +204,9 @@ public class EditInfoController {
         } else {
             Utils.showError("Failed to update info: " + ex.getMessage());
         }
-    }
+    });
 }
 
+    private record PatientData(User user, Patient patient) {}
 }
 
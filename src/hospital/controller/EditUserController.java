@@ -1,8 +1,14 @@
 package hospital.controller;
 
-import hospital.model.DBConnection;
+import hospital.model.User;
+import hospital.model.WriteQueue;
+import hospital.repository.PatientRepository;
+import hospital.repository.UserRepository;
+import hospital.service.DisplayNames;
+import hospital.service.PatientRoster;
 import hospital.ui.Components;
 import hospital.ui.LayoutHelper;
+import hospital.util.Async;
 import hospital.util.Utils;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
@@ -11,49 +17,36 @@ import javafx.scene.layout.VBox;
 import javafx.scene.layout.HBox;
 import javafx.stage.Stage;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-
 public class EditUserController {
 
     public static void showEditUser(Stage stage, String username, String role, String editorRole) {
         
         if ("patient".equalsIgnoreCase(role)) {
-            try (Connection conn = DBConnection.getConnection()) {
-                PreparedStatement stmt = conn.prepareStatement("SELECT name FROM patient_info WHERE username = ?");
-                stmt.setString(1, username);
-                ResultSet rs = stmt.executeQuery();
-                if (rs.next()) {
-                    String name = rs.getString("name");
-                    new EditInfoController(name); 
-                    return;
+            Async.load(() -> PatientRepository.findName(username), name -> {
+                if (name != null) {
+                    new EditInfoController(name);
                 } else {
                     Utils.showError("Patient name not found.");
-                    return;
                 }
-            } catch (Exception ex) {
+            }, ex -> {
                 ex.printStackTrace();
                 Utils.showError("Error retrieving patient name.");
-                return;
-            }
+            });
+            return;
         }
 
         VBox root = LayoutHelper.createBaseLayout();
         root.setStyle("-fx-background-color: #ecf0f1;");
 
-        String displayName = getDisplayName(username, role);
-        String headerText = "Edit User: " + displayName;
-
-        Label header = LayoutHelper.createSectionHeader(headerText);
+        Label header = LayoutHelper.createSectionHeader("Edit User: " + username);
+        Async.load(() -> DisplayNames.of(username),
+                displayName -> header.setText("Edit User: " + displayName), Throwable::printStackTrace);
 
         TextField nameField = Components.createTextField("Full Name");
         TextField userNameField = Components.createTextField("User Name");
         TextField phoneField = Components.createTextField("Phone Number");
         TextField emailField = Components.createTextField("Email");
 
-        loadCurrentData(username, nameField, userNameField, phoneField, emailField);
-
         VBox formBox = new VBox(10);
         formBox.setAlignment(Pos.CENTER);
         formBox.getChildren().addAll(
@@ -73,8 +66,11 @@ public class EditUserController {
         HBox buttonBox = new HBox(10, saveBtn, backBtn);
         buttonBox.setAlignment(Pos.CENTER);
 
+        saveBtn.setDisable(true);
+        loadCurrentData(username, nameField, userNameField, phoneField, emailField, saveBtn);
+
         saveBtn.setOnAction(e -> {
-            saveUserChanges(stage, username, role, editorRole, nameField, userNameField, phoneField, emailField);
+            saveUserChanges(stage, username, role, editorRole, nameField, userNameField, phoneField, emailField, saveBtn);
         });
 
         backBtn.setOnAction(e -> {
@@ -94,26 +90,23 @@ public class EditUserController {
     }
 
     private static void loadCurrentData(String username, TextField nameField, TextField userNameField,
-                                        TextField phoneField, TextField emailField) {
-        try (Connection conn = DBConnection.getConnection()) {
-            PreparedStatement userStmt = conn.prepareStatement("SELECT * FROM users WHERE username = ?");
-            userStmt.setString(1, username);
-            ResultSet userRs = userStmt.executeQuery();
-
-            if (userRs.next()) {
-                emailField.setText(userRs.getString("email") != null ? userRs.getString("email") : "");
-                nameField.setText(userRs.getString("name") != null ? userRs.getString("name") : "");
-                phoneField.setText(userRs.getString("password") != null ? userRs.getString("password") : "");
-                userNameField.setText(userRs.getString("username") != null ? userRs.getString("username") : "");
+                                        TextField phoneField, TextField emailField, Button saveBtn) {
+        Async.load(() -> UserRepository.findByUsername(username), user -> {
+            if (user != null) {
+                emailField.setText(user.getEmail() != null ? user.getEmail() : "");
+                nameField.setText(user.getName() != null ? user.getName() : "");
+                phoneField.setText(user.getPassword() != null ? user.getPassword() : "");
+                userNameField.setText(user.getUsername() != null ? user.getUsername() : "");
             }
-        } catch (Exception e) {
+            saveBtn.setDisable(false);
+        }, e -> {
             e.printStackTrace();
             Utils.showError("Error loading user data.");
-        }
+        });
     }
 
    private static void saveUserChanges(Stage stage, String oldUsername, String role, String editorRole,
-           TextField nameField, TextField userNameField, TextField phoneField, TextField emailField) {
+           TextField nameField, TextField userNameField, TextField phoneField, TextField emailField, Button saveBtn) {
         String newUsername = userNameField.getText().trim();
         String email = emailField.getText().trim();
         String phone = phoneField.getText().trim();
@@ -134,27 +127,24 @@ public class EditUserController {
             return;
         }
 
-        try (Connection conn = DBConnection.getConnection()) {
-            
-            if (!newUsername.equals(oldUsername)) {
-                PreparedStatement checkStmt = conn.prepareStatement("SELECT COUNT(*) FROM users WHERE username = ?");
-                checkStmt.setString(1, newUsername);
-                ResultSet rs = checkStmt.executeQuery();
-                if (rs.next() && rs.getInt(1) > 0) {
-                    Utils.showError("Username '" + newUsername + "' already exists. Please choose a different username.");
-                    return;
-                }
+        saveBtn.setDisable(true);
+        Async.onFx(WriteQueue.submit(conn -> {
+            if (!newUsername.equals(oldUsername) && UserRepository.exists(conn, newUsername)) {
+                return false;
             }
 
-            PreparedStatement userUpdate = conn.prepareStatement(
-                "UPDATE users SET username = ?, email = ?, name = ?, password = ? WHERE username = ?");
-            userUpdate.setString(1, newUsername);
-            userUpdate.setString(2, email);
-            userUpdate.setString(3, name);
-            userUpdate.setString(4, phone);
-            userUpdate.setString(5, oldUsername);
-            userUpdate.executeUpdate();
+            UserRepository.updateAccount(conn, oldUsername, newUsername, name, email, phone);
+            return true;
+        }), updated -> {
+            saveBtn.setDisable(false);
+            if (!updated) {
+                Utils.showError("Username '" + newUsername + "' already exists. Please choose a different username.");
+                return;
+            }
 
+            DisplayNames.invalidate(oldUsername);
+            DisplayNames.invalidate(newUsername);
+            PatientRoster.recheck();
             Utils.showInfo("User updated successfully!");
 
             if ("admin".equalsIgnoreCase(editorRole)) {
@@ -162,32 +152,14 @@ public class EditUserController {
             } else if ("doctor".equalsIgnoreCase(editorRole)) {
                 DoctorDashboardController.showDoctorDashboard(stage, getCurrentDoctorUsername(editorRole));
             }
-
-        } catch (Exception e) {
+        }, e -> {
+            saveBtn.setDisable(false);
             e.printStackTrace();
             Utils.showError("Error updating user: " + e.getMessage());
-        }
+        });
     }
     private static String getCurrentDoctorUsername(String editorRole) {
         return editorRole;
     }
 
-    private static String getDisplayName(String username, String role) {
-        String name = username;
-        try (Connection conn = DBConnection.getConnection()) {
-            PreparedStatement stmt = conn.prepareStatement("SELECT name FROM users WHERE username = ?");
-            stmt.setString(1, username);
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                name = rs.getString("name");
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-
-        if ("doctor".equalsIgnoreCase(role) && name != null && !name.toLowerCase().startsWith("dr.")) {
-            return "Dr. " + name;
-        }
-        return name;
-    }
 }
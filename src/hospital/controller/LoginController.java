@@ -1,8 +1,10 @@
 package hospital.controller;
 
-import hospital.model.DBConnection;
+import hospital.model.User;
+import hospital.repository.UserRepository;
 import hospital.ui.ColorTheme;
 import hospital.ui.Components;
+import hospital.util.Async;
 import hospital.util.Utils;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
@@ -12,9 +14,6 @@ import javafx.scene.control.*;
 import javafx.scene.layout.*;
 import javafx.stage.Stage;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 
 public class LoginController {
     private Stage stage;
@@ -43,48 +42,53 @@ public class LoginController {
                 return;
             }
 
-            handleLogin(username, password);
+            loginButton.setDisable(true);
+            handleLogin(username, password, () -> loginButton.setDisable(false));
         });
 
         root.getChildren().addAll(title, usernameField, passwordField, loginButton);
         return root;
     }
 
-    private void handleLogin(String username, String password) {
-        try (Connection conn = DBConnection.getConnection()) {
-            String query = "SELECT role FROM users WHERE username = ? AND password = ?";
-            PreparedStatement stmt = conn.prepareStatement(query);
-            stmt.setString(1, username.trim());
-            stmt.setString(2, password.trim());
-            ResultSet rs = stmt.executeQuery();
-
-            if (rs.next()) {
-                String role = rs.getString("role").toLowerCase();
-                switch (role) {
-                    case "admin":
-                        new AdminDashboardController(stage).showAdminView();
-                        break;
-                    case "doctor":
-                        new DoctorDashboardController(stage, username).showDoctorView();
-                        break;
-                    case "nurse":
-                        new NurseDashboardController(stage, username).showNurseView();
-                        break;
-                    case "patient":
-                        new PatientDashboardController(stage, username).showPatientView();
-                        break;
-                    default:
-                        Utils.showError("Unknown user role: " + role);
-                        return;
-                }
-                stage.setTitle(capitalize(role) + " Dashboard");
+    private void handleLogin(String username, String password, Runnable onFinished) {
+        Async.load(() -> findRole(username, password), role -> {
+            onFinished.run();
+            if (role != null) {
+                openDashboard(username, role.toLowerCase());
             } else {
                 Utils.showError("Invalid username or password.");
             }
-        } catch (Exception e) {
+        }, e -> {
+            onFinished.run();
             e.printStackTrace();
             Utils.showError("Login error: " + e.getMessage());
+        });
+    }
+
+    private String findRole(String username, String password) throws Exception {
+        User user = UserRepository.findByCredentials(username.trim(), password.trim());
+        return user != null ? user.getRole() : null;
+    }
+
+    private void openDashboard(String username, String role) {
+        switch (role) {
+            case "admin":
+                new AdminDashboardController(stage).showAdminView();
+                break;
+            case "doctor":
+                new DoctorDashboardController(stage, username).showDoctorView();
+                break;
+            case "nurse":
+                new NurseDashboardController(stage, username).showNurseView();
+                break;
+            case "patient":
+                new PatientDashboardController(stage, username).showPatientView();
+                break;
+            default:
+                Utils.showError("Unknown user role: " + role);
+                return;
         }
+        stage.setTitle(capitalize(role) + " Dashboard");
     }
 
     private String capitalize(String role) {
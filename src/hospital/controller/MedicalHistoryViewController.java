@@ -1,8 +1,12 @@
 package hospital.controller;
 
-import hospital.model.DBConnection;
+import hospital.model.MedicalHistory;
+import hospital.model.WriteQueue;
+import hospital.repository.HistoryRepository;
 import hospital.ui.Components;
 import hospital.ui.LayoutHelper;
+import hospital.ui.PagedList;
+import hospital.util.Async;
 import hospital.util.Utils;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
@@ -10,15 +14,19 @@ import javafx.scene.control.*;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 
 public class MedicalHistoryViewController {
 
+    private static final int PAGE_SIZE = 50;
+    private static final int MAX_ROWS = 500;
+
     private Stage stage;
     private String patientUsername;
     private String currentUserRole;
+    private final PagedList<MedicalHistory> pages = new PagedList<>(PAGE_SIZE, MAX_ROWS, e -> {
+        e.printStackTrace();
+        Utils.showError("Failed to load medical history.");
+    });
 
     public MedicalHistoryViewController(Stage stage, String patientUsername, String currentUserRole) {
         this.stage = stage;
@@ -30,33 +38,27 @@ public class MedicalHistoryViewController {
         VBox root = LayoutHelper.createBaseLayout();
         root.getChildren().add(LayoutHelper.createSectionHeader("Medical History"));
 
-        VBox historyBox = new VBox(10);
-        historyBox.setAlignment(Pos.CENTER_LEFT);
-
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement("SELECT date, notes FROM medical_history WHERE patient_username = ? ORDER BY date DESC")) {
-
-            stmt.setString(1, patientUsername);
-            ResultSet rs = stmt.executeQuery();
-
-            while (rs.next()) {
-                String date = rs.getString("date");
-                String notes = rs.getString("notes");
-                Label record = new Label("• " + date + ": " + notes);
-                record.setWrapText(true);
-                historyBox.getChildren().add(record);
-            }
-
-            if (historyBox.getChildren().isEmpty()) {
-                historyBox.getChildren().add(LayoutHelper.createBoldLabel("No medical records found."));
-            }
-
-        } catch (Exception e) {
+        // Only a window of the timeline is held; older records load as the list is scrolled down and
+        // records dropped from the top are fetched again when it is scrolled back up.
+        Label placeholder = LayoutHelper.createPlaceholder("Loading medical history...");
+        ListView<MedicalHistory> historyList = new ListView<>();
+        historyList.setCellFactory(list -> new HistoryCell());
+        historyList.setPlaceholder(placeholder);
+        historyList.setPrefHeight(350);
+        pages.attach(historyList);
+
+        Async.load(() -> HistoryRepository.findOlder(patientUsername, null, PAGE_SIZE), records -> {
+            pages.show(records,
+                    (last, limit) -> HistoryRepository.findOlder(patientUsername, last.getDate(), limit),
+                    (first, limit) -> HistoryRepository.findNewer(patientUsername, first.getDate(), limit));
+            placeholder.setText("No medical records found.");
+        }, e -> {
             e.printStackTrace();
+            placeholder.setText("Failed to load medical history.");
             Utils.showError("Failed to load medical history.");
-        }
+        });
 
-        root.getChildren().add(historyBox);
+        root.getChildren().add(historyList);
 
         if ("doctor".equalsIgnoreCase(currentUserRole)) {
             
@@ -76,18 +78,16 @@ public class MedicalHistoryViewController {
                     Utils.showError("Please enter both date and notes.");
                     return;
                 }
-                try (Connection conn = DBConnection.getConnection();
-                     PreparedStatement stmt = conn.prepareStatement("INSERT INTO medical_history (patient_username, date, notes) VALUES (?, ?, ?)")) {
-                    stmt.setString(1, patientUsername);
-                    stmt.setString(2, date);
-                    stmt.setString(3, notes);
-                    stmt.executeUpdate();
+                addBtn.setDisable(true);
+                Async.onFx(WriteQueue.submit(conn -> HistoryRepository.insert(conn,
+                        new MedicalHistory(patientUsername, date, notes))), rows -> {
                     Utils.showInfo("Medical record added successfully.");
                     showHistoryView();
-                } catch (Exception ex) {
+                }, ex -> {
+                    addBtn.setDisable(false);
                     ex.printStackTrace();
                     Utils.showError("Error saving medical record.");
-                }
+                });
             });
 
             entryBox.getChildren().addAll(
@@ -110,4 +110,26 @@ public class MedicalHistoryViewController {
         stage.setTitle("Medical History");
         stage.show();
     }
-} 
+
+    private class HistoryCell extends ListCell<MedicalHistory> {
+        private final Label record = new Label();
+
+        HistoryCell() {
+            record.setWrapText(true);
+            record.maxWidthProperty().bind(widthProperty().subtract(20));
+        }
+
+        @Override
+        protected void updateItem(MedicalHistory entry, boolean empty) {
+            super.updateItem(entry, empty);
+            if (empty || entry == null) {
+                setGraphic(null);
+                return;
+            }
+
+            record.setText("• " + entry.getDate() + ": " + entry.getNotes());
+            setGraphic(record);
+            pages.rowShown(getIndex());
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package hospital.controller;
+
+import hospital.model.NoteMatch;
+import hospital.repository.HistoryRepository;
+import hospital.ui.Components;
+import hospital.ui.LayoutHelper;
+import hospital.util.SearchPipeline;
+import hospital.util.Utils;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.*;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.scene.text.Text;
+import javafx.scene.text.TextFlow;
+import javafx.stage.Stage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class NoteSearchController {
+
+    private static final int LIMIT = 50;
+
+    private final String callerUsername;
+    private final String callerRole;
+    private final Stage dialog = new Stage();
+    private final ObservableList<NoteMatch> results = FXCollections.observableArrayList();
+    private final Label placeholder = LayoutHelper.createPlaceholder("Search for a word or phrase, e.g. penicillin allergy.");
+    private final SearchPipeline<List<NoteMatch>> pipeline;
+
+    public NoteSearchController(String callerUsername, String callerRole) {
+        this.callerUsername = callerUsername;
+        this.callerRole = callerRole;
+        this.pipeline = new SearchPipeline<>(
+                text -> HistoryRepository.searchNotes(text, callerUsername, callerRole, LIMIT), matches -> {
+            results.setAll(matches);
+            placeholder.setText("No matching notes found.");
+        }, e -> {
+            e.printStackTrace();
+            placeholder.setText("No matching notes found.");
+            Utils.showError("Error searching notes: " + e.getMessage());
+        });
+    }
+
+    public void show() {
+        VBox root = LayoutHelper.createBaseLayout();
+        root.setStyle("-fx-background-color: #ecf0f1;");
+
+        Label header = LayoutHelper.createSectionHeader("Search Medical Notes");
+
+        TextField searchField = Components.createTextField("Search notes...");
+        Button searchBtn = Components.createButton("Search");
+        searchBtn.setPrefWidth(100);
+        searchField.setOnAction(e -> search(searchField.getText()));
+        searchBtn.setOnAction(e -> search(searchField.getText()));
+
+        HBox searchBox = new HBox(10, searchField, searchBtn);
+        searchBox.setAlignment(Pos.CENTER);
+
+        ListView<NoteMatch> resultList = new ListView<>(results);
+        resultList.setCellFactory(list -> new NoteCell());
+        resultList.setPlaceholder(placeholder);
+        resultList.setPrefHeight(400);
+
+        Button closeBtn = Components.createButton("Close");
+        closeBtn.setOnAction(e -> dialog.close());
+
+        root.getChildren().addAll(header, searchBox, resultList, closeBtn);
+
+        dialog.setTitle("Search Medical Notes");
+        dialog.setScene(new Scene(root, 650, 600));
+        dialog.show();
+    }
+
+    private void search(String text) {
+        results.clear();
+        placeholder.setText("Searching...");
+        pipeline.submitNow(text);
+    }
+
+    // Splits a snippet on the repository's match markers into plain and highlighted runs.
+    private static List<Text> highlight(String snippet) {
+        List<Text> runs = new ArrayList<>();
+        boolean matched = false;
+        int start = 0;
+        for (int i = 0; i <= snippet.length(); i++) {
+            char c = i < snippet.length() ? snippet.charAt(i) : HistoryRepository.MATCH_START;
+            if (c != HistoryRepository.MATCH_START && c != HistoryRepository.MATCH_END) {
+                continue;
+            }
+            if (i > start) {
+                Text run = new Text(snippet.substring(start, i));
+                if (matched) {
+                    run.setStyle("-fx-font-weight: bold; -fx-fill: #c0392b;");
+                }
+                runs.add(run);
+            }
+            matched = c == HistoryRepository.MATCH_START;
+            start = i + 1;
+        }
+        return runs;
+    }
+
+    private static class NoteCell extends ListCell<NoteMatch> {
+        private final Label title = LayoutHelper.createBoldLabel("");
+        private final TextFlow snippet = new TextFlow();
+        private final VBox box = new VBox(4, title, snippet);
+
+        NoteCell() {
+            box.prefWidthProperty().bind(widthProperty().subtract(20));
+        }
+
+        @Override
+        protected void updateItem(NoteMatch match, boolean empty) {
+            super.updateItem(match, empty);
+            if (empty || match == null) {
+                setGraphic(null);
+                return;
+            }
+
+            title.setText(match.getPatientName() + " (" + match.getPatientUsername() + ") - " + match.getDate());
+            snippet.getChildren().setAll(highlight(match.getSnippet()));
+            setGraphic(box);
+        }
+    }
+}
@@ -1,23 +1,39 @@
 package hospital.controller;
 
-import hospital.model.DBConnection;
+import hospital.model.AgendaEntry;
+import hospital.model.Patient;
+import hospital.model.User;
+import hospital.repository.AppointmentRepository;
+import hospital.repository.DashboardSnapshot;
+import hospital.repository.UserRepository;
+import hospital.service.DisplayNames;
+import hospital.service.PatientRoster;
 import hospital.ui.Components;
 import hospital.ui.LayoutHelper;
+import hospital.util.Async;
+import hospital.util.PaintTimer;
+import hospital.util.SearchPipeline;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
+import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
 
 public class NurseDashboardController {
 
     private Stage stage;
     private String nurseUsername;
 
+    // Filled from one DashboardSnapshot read, each as soon as it has been read.
+    private VBox doctorList;
+    private VBox appointmentList;
+    private SearchPipeline<List<Patient>> patientSearch;
+
     public NurseDashboardController(Stage stage, String nurseUsername) {
         this.stage = stage;
         this.nurseUsername = nurseUsername;
@@ -27,8 +43,10 @@ public class NurseDashboardController {
         VBox root = LayoutHelper.createBaseLayout();
         root.setStyle("-fx-background-color: #ecf0f1;");
 
-        String nurseDisplayName = getNurseDisplayName();
-        Label header = LayoutHelper.createSectionHeader("Nurse Dashboard - " + nurseDisplayName);
+        Label header = LayoutHelper.createSectionHeader("Nurse Dashboard");
+        Async.load(this::getNurseDisplayName,
+            nurseDisplayName -> header.setText("Nurse Dashboard - " + nurseDisplayName),
+            Throwable::printStackTrace);
 
         ScrollPane scrollPane = new ScrollPane();
         VBox contentBox = new VBox(15);
@@ -39,15 +57,23 @@ public class NurseDashboardController {
         VBox patientDetails = getPatientDetails();
 
         contentBox.getChildren().addAll(assignedDoctorInfo, appointmentDetails, patientDetails);
+        loadSections();
         scrollPane.setContent(contentBox);
         scrollPane.setPrefHeight(400);
         scrollPane.setFitToWidth(true);
 
+        Button searchNotesBtn = Components.createButton("Search Notes");
+        searchNotesBtn.setPrefWidth(150);
+        searchNotesBtn.setOnAction(e -> new NoteSearchController(nurseUsername, "nurse").show());
+
         Button logoutBtn = Components.createButton("Logout");
         logoutBtn.setPrefWidth(150);
         logoutBtn.setOnAction(e -> LoginController.showLogin(stage));
 
-        root.getChildren().addAll(header, scrollPane, logoutBtn);
+        HBox buttonBox = new HBox(10, searchNotesBtn, logoutBtn);
+        buttonBox.setAlignment(Pos.CENTER);
+
+        root.getChildren().addAll(header, scrollPane, buttonBox);
 
         Scene scene = new Scene(root, 700, 600);
         stage.setScene(scene);
@@ -55,18 +81,8 @@ public class NurseDashboardController {
         stage.show();
     }
 
-    private String getNurseDisplayName() {
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement("SELECT name FROM users WHERE username = ? AND role = 'nurse'")) {
-            stmt.setString(1, nurseUsername);
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next() && rs.getString("name") != null) {
-                return rs.getString("name");
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-        return nurseUsername;
+    private String getNurseDisplayName() throws Exception {
+        return DisplayNames.of(nurseUsername);
     }
 
     private VBox getAssignedDoctorInfo() {
@@ -75,52 +91,69 @@ public class NurseDashboardController {
         box.setStyle("-fx-border-color: #bdc3c7; -fx-border-width: 1; -fx-padding: 15;");
 
         Label sectionTitle = LayoutHelper.createSectionHeader("Assigned Doctor Information");
-        box.getChildren().add(sectionTitle);
-
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(
-                 "SELECT doctor_username FROM doctor_nurse_assignment WHERE nurse_username = ?")) {
-
-            stmt.setString(1, nurseUsername);
-            ResultSet rs = stmt.executeQuery();
-
-            boolean hasAssignment = false;
-            while (rs.next()) {
-                hasAssignment = true;
-                String assignedDoctor = rs.getString("doctor_username");
-                if (assignedDoctor != null) {
-                    String doctorDisplayName = getDoctorDisplayName(assignedDoctor);
-                    box.getChildren().add(LayoutHelper.createBoldLabel("Working under: " + doctorDisplayName));
-                }
-            }
+        doctorList = new VBox(10, LayoutHelper.createPlaceholder("Loading assignment..."));
+        box.getChildren().addAll(sectionTitle, doctorList);
+        return box;
+    }
 
-            if (!hasAssignment) {
-                box.getChildren().add(LayoutHelper.createBoldLabel("No doctor assignment found."));
+    // The nurse's doctors, their appointments today and their patients are read in one read transaction, so
+    // the sections agree with each other even while other workstations write. The doctors are read once and
+    // used for both the first section and the agenda. Each section is handed to the FX thread as soon as it
+    // has been read; a roster already in memory is only rebuilt if its stamp has moved.
+    private void loadSections() {
+        VBox doctors = doctorList;
+        VBox appointments = appointmentList;
+        SearchPipeline<List<Patient>> patients = patientSearch;
+        PaintTimer paint = PaintTimer.start("nurse", "doctors", "appointments", "patients");
+        PatientRoster roster = PatientRoster.forNurse(nurseUsername);
+
+        Async.load(() -> DashboardSnapshot.read("nurse", conn -> {
+            List<User> doctorRows = UserRepository.findDoctorsOfNurse(conn, nurseUsername);
+            Async.runOnFx(() -> {
+                showDoctors(doctors, doctorRows);
+                paint.painted("doctors");
+            });
+            List<String> doctorUsernames = new ArrayList<>();
+            for (User doctor : doctorRows) {
+                doctorUsernames.add(doctor.getUsername());
             }
-
-        } catch (Exception e) {
+            List<AgendaEntry> agenda = AppointmentRepository.findDailyAgenda(conn, doctorUsernames, LocalDate.now());
+            Async.runOnFx(() -> {
+                showAppointments(appointments, agenda);
+                paint.painted("appointments");
+            });
+            List<Patient> found = roster.search(conn, null);
+            Async.runOnFx(() -> {
+                patients.seed(found);
+                paint.painted("patients");
+            });
+            return null;
+        }), done -> {}, e -> {
             e.printStackTrace();
-            box.getChildren().add(LayoutHelper.createBoldLabel("Error loading assignment data."));
-        }
-
-        return box;
+            if (!paint.isPainted("doctors")) {
+                doctors.getChildren().setAll(LayoutHelper.createBoldLabel("Error loading assignment data."));
+                paint.painted("doctors");
+            }
+            if (!paint.isPainted("appointments")) {
+                appointments.getChildren().setAll(new Label("Error loading appointment data."));
+                paint.painted("appointments");
+            }
+            if (!paint.isPainted("patients")) {
+                patients.submitNow(null);
+                paint.painted("patients");
+            }
+        });
     }
 
-    private String getDoctorDisplayName(String doctorUsername) {
-        String name = "";
-        if (doctorUsername == null) return "Not assigned";
+    private void showDoctors(VBox box, List<User> doctors) {
+        box.getChildren().clear();
+        for (User doctor : doctors) {
+            box.getChildren().add(LayoutHelper.createBoldLabel("Working under: " + doctor.getDisplayName()));
+        }
 
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement("SELECT name FROM users WHERE username = ? AND role = 'Doctor'")) {
-            stmt.setString(1, doctorUsername);
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next() && rs.getString("name") != null) {
-                name = rs.getString("name");
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
+        if (doctors.isEmpty()) {
+            box.getChildren().add(LayoutHelper.createBoldLabel("No doctor assignment found."));
         }
-        return "Dr. " + name;
     }
 
     private VBox getAppointmentDetails() {
@@ -129,44 +162,24 @@ public class NurseDashboardController {
     box.setStyle("-fx-border-color: #bdc3c7; -fx-border-width: 1; -fx-padding: 15;");
 
     Label sectionTitle = LayoutHelper.createSectionHeader("Today's Appointments");
-    box.getChildren().add(sectionTitle);
+    appointmentList = new VBox(10, LayoutHelper.createPlaceholder("Loading appointments..."));
+    box.getChildren().addAll(sectionTitle, appointmentList);
+
+    return box;
+}
 
-    try (Connection conn = DBConnection.getConnection();
-         PreparedStatement stmt = conn.prepareStatement(
-             "SELECT a.patient_name, a.appointment_date, a.appointment_time, p.name " +
-             "FROM appointments a " +
-             "JOIN patient_info p ON a.patient_name = p.username " +
-             "WHERE a.appointment_date = DATE('now') " +
-             "AND a.doctor IN (SELECT u.name FROM doctor_nurse_assignment d " +
-             "JOIN users u ON d.doctor_username = u.username " +
-             "WHERE d.nurse_username = ?)")
-    ) {
-        stmt.setString(1, nurseUsername);
-        ResultSet rs = stmt.executeQuery();
-
-        boolean hasAppointments = false;
-        while (rs.next()) {
-            hasAppointments = true;
-            String patientUsername = rs.getString("patient_name");
-            String patientName = rs.getString("name");
-            String date = rs.getString("appointment_date");
-            String time = rs.getString("appointment_time");
-
-            box.getChildren().add(new Label("• " + patientName + " (" + patientUsername + ") at " + date + " " + time));
+    private void showAppointments(VBox box, List<AgendaEntry> appointments) {
+        box.getChildren().clear();
+        for (AgendaEntry entry : appointments) {
+            box.getChildren().add(new Label("• " + entry.getPatientName() + " (" + entry.getPatientUsername() + ") at "
+                    + entry.getAppointmentDate() + " " + entry.getAppointmentTime()));
         }
 
-        if (!hasAppointments) {
+        if (appointments.isEmpty()) {
             box.getChildren().add(new Label("No appointments for today."));
         }
-
-    } catch (Exception e) {
-        e.printStackTrace();
-        box.getChildren().add(new Label("Error loading appointment data."));
     }
 
-    return box;
-}
-
 
     private VBox getPatientDetails() {
     VBox box = new VBox(10);
@@ -181,74 +194,56 @@ public class NurseDashboardController {
     searchField.setPrefWidth(300);
     box.getChildren().add(searchField);
 
-    VBox patientList = new VBox(10);
-    patientList.setAlignment(Pos.CENTER_LEFT);
+    Label placeholder = LayoutHelper.createPlaceholder("Loading patients...");
+    ListView<Patient> patientList = new ListView<>();
+    patientList.setCellFactory(list -> new PatientCell());
+    patientList.setPlaceholder(placeholder);
+    patientList.setPrefHeight(400);
     box.getChildren().add(patientList);
 
-    loadPatientsForNurse(null, patientList);
-
-    searchField.textProperty().addListener((obs, oldVal, newVal) -> {
-        loadPatientsForNurse(newVal.trim(), patientList);
-    });
+    patientSearch = new SearchPipeline<>(this::findPatientsForNurse, patients -> {
+        patientList.getItems().setAll(patients);
+        placeholder.setText("No patients found.");
+    }, e -> {
+        e.printStackTrace();
+        patientList.getItems().clear();
+        placeholder.setText("Error retrieving patient data.");
+    }).attach(searchField);
 
     return box;
 }
 
-    private void loadPatientsForNurse(String filter, VBox container) {
-    container.getChildren().clear();
-
-    String query = "SELECT p.username, p.name, p.phone, p.assigned_doctor " +
-                   "FROM patient_info p " +
-                   "WHERE p.assigned_doctor IN (" +
-                       "SELECT u.name FROM doctor_nurse_assignment d " +
-                       "JOIN users u ON d.doctor_username = u.username " +
-                       "WHERE d.nurse_username = ?)";
-
-    if (filter != null && !filter.isEmpty()) {
-        query += " AND LOWER(p.name) LIKE ?";
-    }
-
-    try (Connection conn = DBConnection.getConnection();
-         PreparedStatement stmt = conn.prepareStatement(query)) {
-
-        stmt.setString(1, nurseUsername);
-        if (filter != null && !filter.isEmpty()) {
-            stmt.setString(2, "%" + filter.toLowerCase() + "%");
-        }
+    // Cells are recycled by the ListView, so only the visible rows of the roster exist as nodes.
+    private class PatientCell extends ListCell<Patient> {
+        private final Label header = LayoutHelper.createBoldLabel("");
+        private final Label phoneLabel = new Label();
+        private final Label doctorLabel = new Label();
+        private final Button appointmentChecker = Components.createButton("View Last Appointment");
+        private final VBox patientBox = new VBox(5, header, phoneLabel, doctorLabel, appointmentChecker);
 
-        ResultSet rs = stmt.executeQuery();
-        boolean found = false;
-
-        while (rs.next()) {
-            found = true;
-            String username = rs.getString("username");
-            String name = rs.getString("name");
-            String phone = rs.getString("phone");
-            String doctorName = rs.getString("assigned_doctor");
-
-            VBox patientBox = new VBox(5);
+        PatientCell() {
             patientBox.setStyle("-fx-border-color: #ecf0f1; -fx-border-width: 1; -fx-padding: 10;");
-
-            Label header = LayoutHelper.createBoldLabel("● " + name + " (" + username + ")");
-            Label phoneLabel = new Label("  Phone: " + phone);
-            Label doctorLabel = new Label("  Under Dr. " + doctorName);
-
-            Button appointmentChecker = Components.createButton("View Last Appointment");
-            appointmentChecker.setOnAction(e -> showLastAppointment(username, name));
-
-            patientBox.getChildren().addAll(header, phoneLabel, doctorLabel, appointmentChecker);
-            container.getChildren().add(patientBox);
+            appointmentChecker.setOnAction(e -> showLastAppointment(getItem().getUsername(), getItem().getName()));
         }
 
-        if (!found) {
-            container.getChildren().add(new Label("No patients found."));
+        @Override
+        protected void updateItem(Patient patient, boolean empty) {
+            super.updateItem(patient, empty);
+            if (empty || patient == null) {
+                setGraphic(null);
+                return;
+            }
+
+            header.setText("● " + patient.getName() + " (" + patient.getUsername() + ")");
+            phoneLabel.setText("  Phone: " + patient.getPhone());
+            doctorLabel.setText("  Under Dr. " + patient.getAssignedDoctorName());
+            setGraphic(patientBox);
         }
+    }
 
-    } catch (Exception e) {
-        e.printStackTrace();
-        container.getChildren().add(new Label("Error retrieving patient data."));
+    private List<Patient> findPatientsForNurse(String filter) throws Exception {
+        return PatientRoster.forNurse(nurseUsername).search(filter);
     }
-}
 
     private void showLastAppointment(String patientUsername, String patientName) {
     Stage dialog = new Stage();
@@ -259,47 +254,35 @@ public class NurseDashboardController {
     layout.setPadding(new javafx.geometry.Insets(20));
 
     Label title = LayoutHelper.createBoldLabel("Latest Appointment for: " + patientName);
-
-    try (Connection conn = DBConnection.getConnection();
-         PreparedStatement stmt = conn.prepareStatement(
-             "SELECT * FROM appointments " +
-             "WHERE patient_name = ? " +
-             "ORDER BY appointment_date DESC, appointment_time DESC LIMIT 1"
-         )) {
-
-        stmt.setString(1, patientUsername);
-        ResultSet rs = stmt.executeQuery();
-
-        if (rs.next()) {
-            String doctor = rs.getString("doctor");
-            String date = rs.getString("appointment_date");
-            String time = rs.getString("appointment_time");
-
-            layout.getChildren().addAll(
-                new Label("Doctor: " + doctor),
-                new Label("Date: " + date),
-                new Label("Time: " + time)
-            );
-        } else {
-            layout.getChildren().add(new Label("No appointments found."));
-        }
-
-    } catch (Exception e) {
-        e.printStackTrace();
-        layout.getChildren().add(new Label("Error loading appointment data."));
-    }
+    Label loading = LayoutHelper.createPlaceholder("Loading...");
 
     Button closeBtn = Components.createButton("Close");
     closeBtn.setOnAction(e -> dialog.close());
 
-    layout.getChildren().add(closeBtn);
+    layout.getChildren().addAll(title, loading, closeBtn);
+
+    Async.load(() -> AppointmentRepository.findLatestForPatient(patientUsername), appointment -> {
+        int index = layout.getChildren().indexOf(loading);
+        layout.getChildren().remove(loading);
+        if (appointment != null) {
+            layout.getChildren().addAll(index,
+                List.of(new Label("Doctor: " + appointment.getDoctorName()),
+                        new Label("Date: " + appointment.getAppointmentDate()),
+                        new Label("Time: " + appointment.getAppointmentTime())));
+        } else {
+            layout.getChildren().add(index, new Label("No appointments found."));
+        }
+    }, e -> {
+        e.printStackTrace();
+        int index = layout.getChildren().indexOf(loading);
+        layout.getChildren().set(index, new Label("Error loading appointment data."));
+    });
 
     Scene scene = new Scene(layout, 350, 250);
     dialog.setScene(scene);
     dialog.show();
 }
 
-    
     public static void showNurseDashboard(Stage stage, String nurseUsername) {
         new NurseDashboardController(stage, nurseUsername).showNurseView();
     }
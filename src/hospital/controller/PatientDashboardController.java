@@ -1,23 +1,37 @@
 package hospital.controller;
 
-import hospital.model.DBConnection;
+import hospital.model.Appointment;
+import hospital.model.MedicalHistory;
+import hospital.model.Patient;
+import hospital.model.PatientSummary;
+import hospital.repository.PatientRepository;
+import hospital.service.SchedulingConflictException;
+import hospital.service.SchedulingEngine;
 import hospital.ui.Components;
 import hospital.ui.LayoutHelper;
+import hospital.util.Async;
 import hospital.util.Utils;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
+import javafx.scene.Node;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.layout.VBox;
 import javafx.scene.layout.HBox;
 import javafx.stage.Stage;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 public class PatientDashboardController {
 
+    private static final int HISTORY_PREVIEW = 5;
+
     private Stage stage;
     private String username;
 
@@ -32,16 +46,15 @@ public class PatientDashboardController {
         root.setAlignment(Pos.TOP_CENTER);
         root.setStyle("-fx-background-color: #ecf0f1;");
 
-        String patientName = getPatientName();
-        Label title = Components.createTitle("Patient Dashboard - " + patientName);
+        Label title = Components.createTitle("Patient Dashboard");
 
         ScrollPane scrollPane = new ScrollPane();
         VBox contentBox = new VBox(15);
         contentBox.setAlignment(Pos.TOP_CENTER);
 
-        VBox patientInfo = getPatientInfo();
-        VBox appointments = getAppointments();
-        VBox medicalHistory = getMedicalHistory();
+        VBox patientInfo = createSection(8, "Personal Information", "Loading personal information...");
+        VBox appointments = createSection(10, "My Appointments", "Loading appointments...");
+        VBox medicalHistory = createSection(10, "Medical History", "Loading medical history...");
 
         contentBox.getChildren().addAll(patientInfo, appointments, medicalHistory);
         scrollPane.setContent(contentBox);
@@ -54,8 +67,22 @@ public class PatientDashboardController {
 
         Button editInfoBtn = Components.createButton("Edit My Info");
         editInfoBtn.setPrefWidth(200);
-        
-        editInfoBtn.setOnAction(e -> new EditInfoController(patientName));
+        editInfoBtn.setDisable(true);
+
+        // One read transaction for the whole screen, so the sections agree with each other.
+        Async.load(() -> PatientRepository.findSummary(username, LocalDate.now().atStartOfDay(), HISTORY_PREVIEW), summary -> {
+            title.setText("Patient Dashboard - " + summary.getDisplayName());
+            editInfoBtn.setOnAction(e -> new EditInfoController(summary.getDisplayName()));
+            editInfoBtn.setDisable(false);
+            showPatientInfo(patientInfo, summary);
+            showAppointments(appointments, summary.getUpcoming());
+            showMedicalHistory(medicalHistory, summary.getRecentHistory());
+        }, e -> {
+            e.printStackTrace();
+            showFailure(patientInfo, "Failed to load patient info.");
+            showFailure(appointments, "Failed to load appointments.");
+            showFailure(medicalHistory, "Failed to load medical history.");
+        });
 
         Button logoutBtn = Components.createButton("Logout");
         logoutBtn.setPrefWidth(200);
@@ -74,146 +101,171 @@ public class PatientDashboardController {
         stage.show();
     }
 
-    private String getPatientName() {
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement("SELECT name FROM patient_info WHERE username = ?")) {
-            stmt.setString(1, username);
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                return rs.getString("name");
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-        return username; 
-    }
-
-    private VBox getPatientInfo() {
-        VBox box = new VBox(8);
+    private VBox createSection(double spacing, String title, String loadingText) {
+        VBox box = new VBox(spacing);
         box.setAlignment(Pos.CENTER_LEFT);
         box.setStyle("-fx-border-color: #bdc3c7; -fx-border-width: 1; -fx-padding: 15;");
-        
-        Label sectionTitle = LayoutHelper.createSectionHeader("Personal Information");
-        box.getChildren().add(sectionTitle);
-
-        String query = "SELECT * FROM patient_info WHERE username = ?";
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
-
-            stmt.setString(1, username);
-            ResultSet rs = stmt.executeQuery();
-
-            if (rs.next()) {
-
-                String doctorDisplayName = getDoctorDisplayName(rs.getString("assigned_doctor"));
-                
-                box.getChildren().addAll(
-                        LayoutHelper.createBoldLabel("Name: " + rs.getString("name")),
-                        LayoutHelper.createBoldLabel("Phone: " + rs.getString("phone")),
-                        LayoutHelper.createBoldLabel("Email: " + (rs.getString("email") != null ? rs.getString("email") : "Not provided")),
-                        LayoutHelper.createBoldLabel("Gender: " + (rs.getString("gender") != null ? rs.getString("gender") : "Not provided")),
-                        LayoutHelper.createBoldLabel("DOB: " + (rs.getString("dob") != null ? rs.getString("dob") : "Not provided")),
-                        LayoutHelper.createBoldLabel("Blood Group: " + (rs.getString("blood_group") != null ? rs.getString("blood_group") : "Not provided")),
-                        LayoutHelper.createBoldLabel("Assigned Doctor: " + doctorDisplayName)
-                );
-            }
+        box.getChildren().addAll(LayoutHelper.createSectionHeader(title), LayoutHelper.createPlaceholder(loadingText));
+        return box;
+    }
 
-        } catch (Exception e) {
-            e.printStackTrace();
-            box.getChildren().add(new Label("Failed to load patient info."));
-        }
+    // Swaps the loading placeholder under the section header for the given content.
+    private void fillSection(VBox box, List<? extends Node> content) {
+        box.getChildren().remove(1, box.getChildren().size());
+        box.getChildren().addAll(content);
+    }
 
-        return box;
+    private void showFailure(VBox box, String message) {
+        fillSection(box, List.of(new Label(message)));
     }
 
-    private String getDoctorDisplayName(String doctorUsername) {
-        if (doctorUsername == null) return "Not assigned";
-        
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement("SELECT name FROM users WHERE username = ? AND role = 'doctor'")) {
-            stmt.setString(1, doctorUsername);
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next() && rs.getString("name") != null) {
-                return rs.getString("name");
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
+    private void showPatientInfo(VBox box, PatientSummary summary) {
+        Patient patient = summary.getPatient();
+        if (patient == null) {
+            fillSection(box, List.of());
+            return;
         }
-        return "Dr. " + doctorUsername; 
+        fillSection(box, List.of(
+                LayoutHelper.createBoldLabel("Name: " + patient.getName()),
+                LayoutHelper.createBoldLabel("Phone: " + patient.getPhone()),
+                LayoutHelper.createBoldLabel("Email: " + (patient.getEmail() != null ? patient.getEmail() : "Not provided")),
+                LayoutHelper.createBoldLabel("Gender: " + (patient.getGender() != null ? patient.getGender() : "Not provided")),
+                LayoutHelper.createBoldLabel("DOB: " + (patient.getDob() != null ? patient.getDob() : "Not provided")),
+                LayoutHelper.createBoldLabel("Blood Group: " + (patient.getBloodGroup() != null ? patient.getBloodGroup() : "Not provided")),
+                LayoutHelper.createBoldLabel("Assigned Doctor: " + summary.getDoctorDisplayName())
+        ));
     }
 
-    private VBox getAppointments() {
-        VBox box = new VBox(10);
-        box.setAlignment(Pos.CENTER_LEFT);
-        box.setStyle("-fx-border-color: #bdc3c7; -fx-border-width: 1; -fx-padding: 15;");
-        
-        Label sectionTitle = LayoutHelper.createSectionHeader("My Appointments");
-        box.getChildren().add(sectionTitle);
-
-        String sql = "SELECT doctor, appointment_time FROM appointments WHERE patient_name = ?";
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setString(1, username);
-            ResultSet rs = stmt.executeQuery();
-
-            boolean hasAppointments = false;
-            while (rs.next()) {
-                hasAppointments = true;
-                String doctor = rs.getString("doctor");
-                String time = rs.getString("appointment_time");
-                String doctorDisplayName = getDoctorDisplayName(doctor);
-                box.getChildren().add(new Label("• With " + doctorDisplayName + " on " + time));
+    private void showAppointments(VBox box, List<Appointment> appointments) {
+        List<Node> rows = new ArrayList<>();
+        Set<Long> seriesShown = new HashSet<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (Appointment appointment : appointments) {
+            // Today's appointments that have already started are listed but can no longer be cancelled.
+            boolean started = appointment.getStart().isBefore(now);
+            HBox row = createAppointmentRow(appointment, !started);
+            // Series actions go on the next occurrence of each series only.
+            if (!started && appointment.getSeriesId() != 0 && seriesShown.add(appointment.getSeriesId())) {
+                row.getChildren().addAll(createMoveSeriesButton(appointment), createCancelSeriesButton(appointment));
             }
+            rows.add(row);
+        }
 
-            if (!hasAppointments) {
-                box.getChildren().add(new Label("No appointments scheduled."));
-            }
+        if (appointments.isEmpty()) {
+            rows.add(new Label("No appointments scheduled."));
+        }
+        fillSection(box, rows);
+    }
 
-        } catch (Exception e) {
-            e.printStackTrace();
-            box.getChildren().add(new Label("Failed to load appointments."));
+    private HBox createAppointmentRow(Appointment appointment, boolean cancellable) {
+        String doctorDisplayName = appointment.getDoctorName() != null
+                ? appointment.getDoctorName() : "Dr. " + appointment.getDoctor();
+        Label label = new Label("• With " + doctorDisplayName + " on " + appointment.getAppointmentDate()
+                + " at " + appointment.getAppointmentTime());
+        label.setPrefWidth(350);
+        HBox row = new HBox(10, label);
+        row.setAlignment(Pos.CENTER_LEFT);
+        if (!cancellable) {
+            return row;
         }
 
-        return box;
+        Button cancelBtn = Components.createButton("Cancel");
+        cancelBtn.setPrefWidth(80);
+        cancelBtn.setOnAction(e -> {
+            cancelBtn.setDisable(true);
+            Async.onFx(SchedulingEngine.cancel(appointment.getDoctor(), username, appointment.getStart()), rows -> {
+                Utils.showInfo(rows > 0 ? "Appointment cancelled." : "This appointment was already cancelled.");
+                showPatientView();
+            }, ex -> {
+                if (ex instanceof SchedulingConflictException) {
+                    Utils.showError(ex.getMessage());
+                    showPatientView();
+                    return;
+                }
+                cancelBtn.setDisable(false);
+                ex.printStackTrace();
+                Utils.showError("Error cancelling appointment.");
+            });
+        });
+
+        row.getChildren().add(cancelBtn);
+        return row;
     }
 
-    private VBox getMedicalHistory() {
-        VBox box = new VBox(10);
-        box.setAlignment(Pos.CENTER_LEFT);
-        box.setStyle("-fx-border-color: #bdc3c7; -fx-border-width: 1; -fx-padding: 15;");
-        
-        Label sectionTitle = LayoutHelper.createSectionHeader("Medical History");
-        box.getChildren().add(sectionTitle);
-
-        String sql = "SELECT date, notes FROM medical_history WHERE patient_username = ? ORDER BY date DESC LIMIT 5";
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setString(1, username);
-            ResultSet rs = stmt.executeQuery();
-
-            boolean hasHistory = false;
-            while (rs.next()) {
-                hasHistory = true;
-                String date = rs.getString("date");
-                String notes = rs.getString("notes");
-                Label record = new Label("• " + date + ": " + notes);
-                record.setWrapText(true);
-                box.getChildren().add(record);
-            }
+    private Button createCancelSeriesButton(Appointment appointment) {
+        Button button = Components.createButton("Cancel Series");
+        button.setOnAction(e -> {
+            button.setDisable(true);
+            Async.onFx(SchedulingEngine.cancelSeries(appointment.getDoctor(), appointment.getSeriesId()), rows -> {
+                Utils.showInfo(rows + " upcoming appointments in the series cancelled.");
+                showPatientView();
+            }, ex -> {
+                button.setDisable(false);
+                ex.printStackTrace();
+                Utils.showError("Error cancelling series.");
+            });
+        });
+        return button;
+    }
 
-            if (!hasHistory) {
-                box.getChildren().add(new Label("No medical records found."));
+    // Offers the times free on the next occurrence's day; every later occurrence is checked when it is saved.
+    private Button createMoveSeriesButton(Appointment appointment) {
+        Button button = Components.createButton("Move Series");
+        button.setOnAction(e -> Async.load(() -> SchedulingEngine.freeSlots(appointment.getDoctor(),
+                appointment.getStart().toLocalDate()), slots -> {
+            if (slots.isEmpty()) {
+                Utils.showError("No other free times on " + appointment.getAppointmentDate() + ".");
+                return;
+            }
+            List<String> choices = new ArrayList<>();
+            for (LocalTime slot : slots) {
+                choices.add(SchedulingEngine.format(slot));
             }
+            ChoiceDialog<String> dialog = new ChoiceDialog<>(choices.get(0), choices);
+            dialog.setTitle("Move Series");
+            dialog.setHeaderText("Move this and all later appointments in the series to:");
+            dialog.showAndWait().ifPresent(choice -> {
+                LocalTime time = slots.get(choices.indexOf(choice));
+                button.setDisable(true);
+                Async.onFx(SchedulingEngine.moveSeries(appointment.getDoctor(), appointment.getSeriesId(), time), rows -> {
+                    Utils.showInfo(rows + " appointments moved to " + choice + ".");
+                    showPatientView();
+                }, ex -> {
+                    button.setDisable(false);
+                    if (ex instanceof SchedulingConflictException) {
+                        Utils.showError(ex.getMessage());
+                        return;
+                    }
+                    ex.printStackTrace();
+                    Utils.showError("Error moving series.");
+                });
+            });
+        }, ex -> {
+            ex.printStackTrace();
+            Utils.showError("Error loading free times.");
+        }));
+        return button;
+    }
 
-        } catch (Exception e) {
-            e.printStackTrace();
-            box.getChildren().add(new Label("Failed to load medical history."));
+    private void showMedicalHistory(VBox box, List<MedicalHistory> records) {
+        List<Node> rows = new ArrayList<>();
+        for (MedicalHistory entry : records) {
+            Label record = new Label("• " + entry.getDate() + ": " + entry.getNotes());
+            record.setWrapText(true);
+            rows.add(record);
         }
 
-        return box;
+        if (records.isEmpty()) {
+            rows.add(new Label("No medical records found."));
+        } else {
+            Button fullHistoryBtn = Components.createButton("View Full History");
+            fullHistoryBtn.setOnAction(e -> new MedicalHistoryViewController(stage, username, "patient").showHistoryView());
+            rows.add(fullHistoryBtn);
+        }
+        fillSection(box, rows);
     }
 
     public static void showPatientDashboard(Stage stage, String username) {
         new PatientDashboardController(stage, username).showPatientView();
     }
-}
\ No newline at end of file
+}
@@ -1,8 +1,18 @@
 package hospital.controller;
 
-import hospital.model.DBConnection;
+import hospital.model.Patient;
+import hospital.model.User;
+import hospital.model.WriteQueue;
+import hospital.repository.HistoryRepository;
+import hospital.repository.PatientRepository;
+import hospital.repository.UserRepository;
+import hospital.service.DisplayNames;
+import hospital.service.PatientRoster;
+import hospital.service.SchedulingEngine;
+import hospital.service.StaffDirectory;
 import hospital.ui.Components;
 import hospital.ui.LayoutHelper;
+import hospital.util.Async;
 import hospital.util.Utils;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
@@ -10,10 +20,9 @@ import javafx.scene.control.*;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class SignupController {
 
@@ -29,9 +38,7 @@ public class SignupController {
         TextField phoneField = Components.createTextField("Enter Phone Number (Password will be this)");
 
         ComboBox<String> roleBox = new ComboBox<>();
-        ComboBox<String> doctorBox = new ComboBox<>();
-        doctorBox.setPromptText("Assign to Doctor");
-        doctorBox.setPrefWidth(280);
+        ComboBox<User> doctorBox = Components.createUserComboBox("Assign to Doctor");
         doctorBox.setVisible(false);
 
         TextField patientTypeField = Components.createTextField("Enter Patient Type (e.g., General, Emergency)");
@@ -87,8 +94,16 @@ public class SignupController {
 
                 dialog.showAndWait().ifPresent(password -> {
                     if ("admin123".equals(password)) {
-                        resetToDefaultAdmin();
-                        Utils.showInfo("Database reset successfully. Only admin account remains.");
+                        Async.onFx(resetToDefaultAdmin(), done -> {
+                                    PatientRoster.invalidateAll();
+                                    SchedulingEngine.invalidateAll();
+                                    DisplayNames.invalidateAll();
+                                    Utils.showInfo("Database reset successfully. Only admin account remains.");
+                                },
+                                ex -> {
+                                    ex.printStackTrace();
+                                    Utils.showError("Database reset failed: " + ex.getMessage());
+                                });
                     } else {
                         Utils.showError("Invalid admin password.");
                     }
@@ -101,7 +116,8 @@ public class SignupController {
             String username = usernameField.getText().trim();
             String phone = phoneField.getText().trim();
             String role = creatorRole.equals("doctor") ? "patient" : roleBox.getValue();
-            String assignedDoctor = creatorRole.equals("doctor") ? creatorUsername : doctorBox.getValue();
+            String assignedDoctor = creatorRole.equals("doctor") ? creatorUsername
+                    : doctorBox.getValue() != null ? doctorBox.getValue().getUsername() : null;
             String patientType = patientTypeField.getText().trim();
             String history = historyField.getText().trim();
 
@@ -120,45 +136,33 @@ public class SignupController {
                 return;
             }
 
-            try (Connection conn = DBConnection.getConnection()) {
-
-                String sql = "INSERT INTO users (username, password, role, name) VALUES (?, ?, ?, ?)";
-                PreparedStatement stmt = conn.prepareStatement(sql);
-                stmt.setString(1, username);
-                stmt.setString(2, phone);
-                stmt.setString(3, role);
-                stmt.setString(4, name);
-                stmt.executeUpdate();
+            registerButton.setDisable(true);
+            Async.onFx(WriteQueue.submit(conn -> {
+                UserRepository.insert(conn, new User(username, phone, role, name, null));
 
                 if ("patient".equalsIgnoreCase(role)) {
-                    String info = "INSERT INTO patient_info (username, name, phone, assigned_doctor, type) VALUES (?, ?, ?, ?, ?)";
-                    PreparedStatement insertPatient = conn.prepareStatement(info);
-                    insertPatient.setString(1, username);
-                    insertPatient.setString(2, name);
-                    insertPatient.setString(3, phone);
-                    insertPatient.setString(4, assignedDoctor);
-                    insertPatient.setString(5, patientType);
-                    insertPatient.executeUpdate();
+                    PatientRepository.insert(conn,
+                            new Patient(username, name, phone, null, null, null, null, assignedDoctor, patientType));
 
                     if (!history.isEmpty()) {
-                        String hist = "INSERT INTO medical_history (patient_username, date, notes) VALUES (?, datetime('now'), ?)";
-                        PreparedStatement mh = conn.prepareStatement(hist);
-                        mh.setString(1, username);
-                        mh.setString(2, history);
-                        mh.executeUpdate();
+                        HistoryRepository.insertNow(conn, username, history);
                     }
                 }
-
+                return null;
+            }), done -> {
+                if ("patient".equalsIgnoreCase(role)) {
+                    PatientRoster.recheck();
+                }
                 Utils.showInfo("User registered successfully.");
                 if ("admin".equalsIgnoreCase(creatorRole))
                     AdminDashboardController.showAdminDashboard(stage);
                 else
                     DoctorDashboardController.showDoctorDashboard(stage, creatorUsername);
-
-            } catch (Exception ex) {
+            }, ex -> {
+                registerButton.setDisable(false);
                 ex.printStackTrace();
                 Utils.showError("Error: " + ex.getMessage());
-            }
+            });
         });
 
         backButton.setOnAction(e -> {
@@ -196,44 +200,39 @@ public class SignupController {
         stage.show();
     }
 
-    private static void loadDoctors(ComboBox<String> box) {
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement("SELECT username, name FROM users WHERE LOWER(role) = 'doctor'");
-             ResultSet rs = stmt.executeQuery()) {
-
+    // Filled from the staff directory at once when it has been loaded before, then refreshed if staff changed.
+    private static void loadDoctors(ComboBox<User> box) {
+        StaffDirectory.Snapshot known = StaffDirectory.peek();
+        if (known != null) {
+            showDoctors(box, known.doctors());
+        } else {
             box.getItems().clear();
-            while (rs.next()) {
-
-                String name = rs.getString("name");
-                box.getItems().add(name);
-            }
-
-            if (box.getItems().isEmpty()) {
-                box.setPromptText("No doctors found");
-            }
-
-        } catch (Exception e) {
-            e.printStackTrace();
+            box.setPromptText("Loading doctors...");
         }
+        Async.load(StaffDirectory::current, staff -> {
+            if (staff != known) {
+                showDoctors(box, staff.doctors());
+            }
+        }, Throwable::printStackTrace);
     }
 
-    public static void resetToDefaultAdmin() {
-        try (Connection conn = DBConnection.getConnection();
-             Statement stmt = conn.createStatement()) {
-
-            stmt.executeUpdate("DELETE FROM users WHERE username != 'admin'");
-            stmt.executeUpdate("DELETE FROM patient_info");
-            stmt.executeUpdate("DELETE FROM appointments");
-            stmt.executeUpdate("DELETE FROM medical_history");
-            stmt.executeUpdate("DELETE FROM doctor_nurse_assignment");
+    private static void showDoctors(ComboBox<User> box, List<User> doctors) {
+        box.getItems().setAll(doctors);
+        box.setPromptText(doctors.isEmpty() ? "No doctors found" : "Assign to Doctor");
+    }
 
-            ResultSet rs = stmt.executeQuery("SELECT * FROM users WHERE username = 'admin'");
-            if (!rs.next()) {
-                stmt.executeUpdate("INSERT INTO users (username, password, role, name) VALUES ('admin', 'admin123', 'admin', 'Administrator')");
+    public static CompletableFuture<Void> resetToDefaultAdmin() {
+        return WriteQueue.submit(conn -> {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("DELETE FROM users WHERE username != 'admin'");
+                stmt.executeUpdate("DELETE FROM patient_info");
+                stmt.executeUpdate("DELETE FROM appointments");
+                stmt.executeUpdate("DELETE FROM appointment_series");
+                stmt.executeUpdate("DELETE FROM medical_history");
+                stmt.executeUpdate("DELETE FROM doctor_nurse_assignment");
+                stmt.executeUpdate("INSERT OR IGNORE INTO users (username, password, role, name) VALUES ('admin', 'admin123', 'admin', 'Administrator')");
             }
-
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+            return null;
+        });
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,31 @@
+package hospital.model;
+
+import java.time.LocalDateTime;
+
+public class AgendaEntry {
+    private String doctorUsername;
+    private String doctorName;
+    private String patientUsername;
+    private String patientName;
+    private LocalDateTime start;
+    private int durationMinutes;
+
+    public AgendaEntry(String doctorUsername, String doctorName, String patientUsername, String patientName,
+                       LocalDateTime start, int durationMinutes) {
+        this.doctorUsername = doctorUsername;
+        this.doctorName = doctorName;
+        this.patientUsername = patientUsername;
+        this.patientName = patientName;
+        this.start = start;
+        this.durationMinutes = durationMinutes;
+    }
+
+    public String getDoctorUsername() { return doctorUsername; }
+    public String getDoctorName() { return doctorName; }
+    public String getPatientUsername() { return patientUsername; }
+    public String getPatientName() { return patientName; }
+    public LocalDateTime getStart() { return start; }
+    public int getDurationMinutes() { return durationMinutes; }
+    public String getAppointmentDate() { return start.toLocalDate().toString(); }
+    public String getAppointmentTime() { return Appointment.TIME_FORMAT.format(start); }
+}
@@ -1,17 +1,45 @@
 package hospital.model;
 
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
 public class Appointment {
+
+    // How appointment times are shown, e.g. "02:30 PM".
+    public static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("hh:mm a", Locale.US);
+
     private String doctor;
+    private String doctorName;
     private String patientName;
-    private String appointmentTime;
+    private LocalDateTime start;
+    private int durationMinutes;
+    private long seriesId;
+
+    public Appointment(String doctor, String patientName, LocalDateTime start, int durationMinutes) {
+        this(doctor, null, patientName, start, durationMinutes);
+    }
+
+    public Appointment(String doctor, String doctorName, String patientName, LocalDateTime start, int durationMinutes) {
+        this(doctor, doctorName, patientName, start, durationMinutes, 0);
+    }
 
-    public Appointment(String doctor, String patientName, String appointmentTime) {
+    public Appointment(String doctor, String doctorName, String patientName, LocalDateTime start, int durationMinutes,
+                       long seriesId) {
         this.doctor = doctor;
+        this.doctorName = doctorName;
         this.patientName = patientName;
-        this.appointmentTime = appointmentTime;
+        this.start = start;
+        this.durationMinutes = durationMinutes;
+        this.seriesId = seriesId;
     }
 
     public String getDoctor() { return doctor; }
+    public String getDoctorName() { return doctorName; }
     public String getPatientName() { return patientName; }
-    public String getAppointmentTime() { return appointmentTime; }
+    public LocalDateTime getStart() { return start; }
+    public int getDurationMinutes() { return durationMinutes; }
+    public long getSeriesId() { return seriesId; }
+    public String getAppointmentDate() { return start.toLocalDate().toString(); }
+    public String getAppointmentTime() { return TIME_FORMAT.format(start); }
 }
@@ -0,0 +1,137 @@
+package hospital.model;
+
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Retries a step that failed with SQLITE_BUSY (another process holds the lock it needs), sleeping between
+// attempts with a doubling, jittered delay capped at maxDelayMs, and gives up after maxAttempts. Only steps
+// that can be repeated as they are belong here, e.g. BEGIN IMMEDIATE or COMMIT. How often and how long
+// callers waited is counted so lock contention between workstations shows up in the stats.
+public class BusyRetry {
+
+    public interface Step {
+        void run() throws SQLException;
+    }
+
+    // SQLITE_BUSY; the extended codes (BUSY_RECOVERY, BUSY_SNAPSHOT, BUSY_TIMEOUT) share the low byte.
+    private static final int SQLITE_BUSY = 5;
+
+    private final int maxAttempts;
+    private final long baseDelayMs;
+    private final long maxDelayMs;
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder contended = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder exhausted = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    public BusyRetry(int maxAttempts, long baseDelayMs, long maxDelayMs) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseDelayMs = Math.max(1, baseDelayMs);
+        this.maxDelayMs = Math.max(this.baseDelayMs, maxDelayMs);
+    }
+
+    public static boolean isBusy(Throwable error) {
+        for (Throwable e = error; e != null; e = e.getCause()) {
+            if (e instanceof SQLException sql && (sql.getErrorCode() & 0xff) == SQLITE_BUSY) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void run(Step step) throws SQLException {
+        calls.increment();
+        long waited = 0;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                step.run();
+                record(waited);
+                return;
+            } catch (SQLException e) {
+                if (!isBusy(e)) {
+                    record(waited);
+                    throw e;
+                }
+                if (attempt == 1) {
+                    contended.increment();
+                }
+                if (attempt >= maxAttempts) {
+                    exhausted.increment();
+                    record(waited);
+                    throw new SQLException("Database is busy; gave up after " + attempt + " attempts over "
+                            + TimeUnit.NANOSECONDS.toMillis(waited) + " ms", e.getSQLState(), e.getErrorCode(), e);
+                }
+                retries.increment();
+                waited += sleep(attempt);
+            }
+        }
+    }
+
+    private long sleep(int attempt) throws SQLException {
+        long cap = Math.min(maxDelayMs, baseDelayMs << Math.min(attempt - 1, 20));
+        long delay = cap / 2 + ThreadLocalRandom.current().nextLong(cap / 2 + 1);
+        long start = System.nanoTime();
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for the database lock", e);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private void record(long waited) {
+        if (waited > 0) {
+            totalWaitNanos.add(waited);
+            maxWaitNanos.accumulateAndGet(waited, Math::max);
+        }
+    }
+
+    public Stats getStats() {
+        return new Stats(calls.sum(), contended.sum(), retries.sum(), exhausted.sum(), totalWaitNanos.sum(),
+                maxWaitNanos.get());
+    }
+
+    public static class Stats {
+        private final long calls;
+        private final long contended;
+        private final long retries;
+        private final long exhausted;
+        private final long totalWaitNanos;
+        private final long maxWaitNanos;
+
+        Stats(long calls, long contended, long retries, long exhausted, long totalWaitNanos, long maxWaitNanos) {
+            this.calls = calls;
+            this.contended = contended;
+            this.retries = retries;
+            this.exhausted = exhausted;
+            this.totalWaitNanos = totalWaitNanos;
+            this.maxWaitNanos = maxWaitNanos;
+        }
+
+        public long getCalls() { return calls; }
+        public long getContended() { return contended; }
+        public long getRetries() { return retries; }
+        public long getExhausted() { return exhausted; }
+        public long getTotalWaitNanos() { return totalWaitNanos; }
+        public long getMaxWaitNanos() { return maxWaitNanos; }
+
+        public double getAverageWaitMillis() {
+            return contended == 0 ? 0 : totalWaitNanos / 1_000_000.0 / contended;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("busy[calls=%d contended=%d retries=%d exhausted=%d totalWait=%.1fms avgWait=%.3fms " +
+                            "maxWait=%.3fms]",
+                    calls, contended, retries, exhausted, totalWaitNanos / 1_000_000.0, getAverageWaitMillis(),
+                    maxWaitNanos / 1_000_000.0);
+        }
+    }
+}
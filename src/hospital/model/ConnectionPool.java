@@ -0,0 +1,364 @@
+package hospital.model;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ConnectionPool {
+
+    public interface ConnectionSetup {
+        void apply(Connection conn) throws SQLException;
+    }
+
+    private final String url;
+    private final int maxSize;
+    private final long acquireTimeoutMillis;
+    private final long validationIntervalMillis;
+    private final int statementCacheSize;
+
+    private final BlockingDeque<PooledEntry> idle = new LinkedBlockingDeque<>();
+    private final Semaphore permits;
+    private final List<ConnectionSetup> setupHooks = new CopyOnWriteArrayList<>();
+    private volatile boolean closed;
+
+    private final LongAdder acquireCount = new LongAdder();
+    private final LongAdder createdCount = new LongAdder();
+    private final LongAdder discardedCount = new LongAdder();
+    private final LongAdder timeoutCount = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final LongAdder totalUseNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicInteger inUse = new AtomicInteger();
+    private final AtomicInteger peakInUse = new AtomicInteger();
+    private final AtomicInteger openCount = new AtomicInteger();
+    private final StatementCache.Counters statementCounters = new StatementCache.Counters();
+
+    public ConnectionPool(String url, int maxSize, long acquireTimeoutMillis, long validationIntervalMillis,
+                          int statementCacheSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Pool size must be at least 1");
+        }
+        this.url = url;
+        this.maxSize = maxSize;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.validationIntervalMillis = validationIntervalMillis;
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(maxSize, true);
+    }
+
+    public void addSetupHook(ConnectionSetup hook) {
+        setupHooks.add(hook);
+    }
+
+    public Connection acquire() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeoutCount.increment();
+                throw new SQLException("Timed out after " + acquireTimeoutMillis + " ms waiting for a database connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+
+        PooledEntry entry;
+        try {
+            entry = takeIdleOrCreate();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+
+        long waited = System.nanoTime() - start;
+        acquireCount.increment();
+        totalWaitNanos.add(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+        peakInUse.accumulateAndGet(inUse.incrementAndGet(), Math::max);
+
+        entry.checkedOutAt = System.nanoTime();
+        return entry.newHandle();
+    }
+
+    private PooledEntry takeIdleOrCreate() throws SQLException {
+        PooledEntry entry;
+        while ((entry = idle.pollFirst()) != null) {
+            if (isUsable(entry)) {
+                return entry;
+            }
+            discard(entry);
+        }
+        return create();
+    }
+
+    private boolean isUsable(PooledEntry entry) {
+        if (System.nanoTime() - entry.lastUsedAt < TimeUnit.MILLISECONDS.toNanos(validationIntervalMillis)) {
+            return true;
+        }
+        try (Statement stmt = entry.conn.createStatement()) {
+            stmt.execute("SELECT 1");
+            return true;
+        } catch (SQLException e) {
+            System.err.println("Discarding broken pooled connection: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private PooledEntry create() throws SQLException {
+        Connection conn = DriverManager.getConnection(url);
+        try {
+            for (ConnectionSetup hook : setupHooks) {
+                hook.apply(conn);
+            }
+        } catch (SQLException | RuntimeException e) {
+            conn.close();
+            throw e;
+        }
+        createdCount.increment();
+        openCount.incrementAndGet();
+        return new PooledEntry(conn);
+    }
+
+    private void release(PooledEntry entry) {
+        totalUseNanos.add(System.nanoTime() - entry.checkedOutAt);
+        inUse.decrementAndGet();
+
+        boolean reusable = !closed && !entry.aborted;
+        try {
+            entry.statements.releaseAll();
+            entry.closeTrackedStatements();
+            if (!entry.conn.getAutoCommit()) {
+                entry.conn.rollback();
+                entry.conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            System.err.println("Failed to reset pooled connection: " + e.getMessage());
+            reusable = false;
+        }
+
+        if (reusable) {
+            entry.lastUsedAt = System.nanoTime();
+            idle.offerFirst(entry);
+        } else {
+            discard(entry);
+        }
+        permits.release();
+    }
+
+    private void discard(PooledEntry entry) {
+        discardedCount.increment();
+        openCount.decrementAndGet();
+        entry.statements.close();
+        try {
+            entry.conn.close();
+        } catch (SQLException ignored) {}
+    }
+
+    public void close() {
+        closed = true;
+        PooledEntry entry;
+        while ((entry = idle.pollFirst()) != null) {
+            discard(entry);
+        }
+    }
+
+    public Stats getStats() {
+        return new Stats(maxSize, openCount.get(), idle.size(), inUse.get(), peakInUse.get(),
+                acquireCount.sum(), createdCount.sum(), discardedCount.sum(), timeoutCount.sum(),
+                totalWaitNanos.sum(), maxWaitNanos.get(), totalUseNanos.sum(),
+                statementCounters.hits.sum(), statementCounters.misses.sum(), statementCounters.evictions.sum());
+    }
+
+    public static class Stats {
+        private final int maxSize;
+        private final int open;
+        private final int idle;
+        private final int inUse;
+        private final int peakInUse;
+        private final long acquired;
+        private final long created;
+        private final long discarded;
+        private final long timeouts;
+        private final long totalWaitNanos;
+        private final long maxWaitNanos;
+        private final long totalUseNanos;
+        private final long statementHits;
+        private final long statementMisses;
+        private final long statementEvictions;
+
+        Stats(int maxSize, int open, int idle, int inUse, int peakInUse, long acquired, long created,
+              long discarded, long timeouts, long totalWaitNanos, long maxWaitNanos, long totalUseNanos,
+              long statementHits, long statementMisses, long statementEvictions) {
+            this.maxSize = maxSize;
+            this.open = open;
+            this.idle = idle;
+            this.inUse = inUse;
+            this.peakInUse = peakInUse;
+            this.acquired = acquired;
+            this.created = created;
+            this.discarded = discarded;
+            this.timeouts = timeouts;
+            this.totalWaitNanos = totalWaitNanos;
+            this.maxWaitNanos = maxWaitNanos;
+            this.totalUseNanos = totalUseNanos;
+            this.statementHits = statementHits;
+            this.statementMisses = statementMisses;
+            this.statementEvictions = statementEvictions;
+        }
+
+        public int getMaxSize() { return maxSize; }
+        public int getOpen() { return open; }
+        public int getIdle() { return idle; }
+        public int getInUse() { return inUse; }
+        public int getPeakInUse() { return peakInUse; }
+        public long getAcquired() { return acquired; }
+        public long getCreated() { return created; }
+        public long getDiscarded() { return discarded; }
+        public long getTimeouts() { return timeouts; }
+        public long getMaxWaitNanos() { return maxWaitNanos; }
+        public long getStatementHits() { return statementHits; }
+        public long getStatementMisses() { return statementMisses; }
+        public long getStatementEvictions() { return statementEvictions; }
+
+        public double getStatementHitRatio() {
+            long lookups = statementHits + statementMisses;
+            return lookups == 0 ? 0 : (double) statementHits / lookups;
+        }
+
+        public double getAverageWaitMillis() {
+            return acquired == 0 ? 0 : totalWaitNanos / 1_000_000.0 / acquired;
+        }
+
+        public double getAverageUseMillis() {
+            return acquired == 0 ? 0 : totalUseNanos / 1_000_000.0 / acquired;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                "pool[size=%d open=%d idle=%d inUse=%d peak=%d acquired=%d created=%d discarded=%d timeouts=%d " +
+                "avgWait=%.3fms maxWait=%.3fms avgUse=%.3fms] " +
+                "statements[hits=%d misses=%d evictions=%d hitRatio=%.1f%%]",
+                maxSize, open, idle, inUse, peakInUse, acquired, created, discarded, timeouts,
+                getAverageWaitMillis(), maxWaitNanos / 1_000_000.0, getAverageUseMillis(),
+                statementHits, statementMisses, statementEvictions, getStatementHitRatio() * 100);
+        }
+    }
+
+    private class PooledEntry {
+        final Connection conn;
+        final StatementCache statements;
+        final List<Statement> trackedStatements = new ArrayList<>();
+        volatile long lastUsedAt = System.nanoTime();
+        long checkedOutAt;
+        volatile boolean aborted;
+
+        PooledEntry(Connection conn) {
+            this.conn = conn;
+            this.statements = new StatementCache(conn, statementCacheSize, statementCounters);
+        }
+
+        Connection newHandle() {
+            return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class },
+                new Handle(this));
+        }
+
+        void track(Statement stmt) {
+            synchronized (trackedStatements) {
+                trackedStatements.add(stmt);
+            }
+        }
+
+        void closeTrackedStatements() {
+            synchronized (trackedStatements) {
+                for (Statement stmt : trackedStatements) {
+                    try {
+                        stmt.close();
+                    } catch (SQLException ignored) {}
+                }
+                trackedStatements.clear();
+            }
+        }
+    }
+
+    // Handed out to callers instead of the physical connection so that close() returns it to the pool.
+    private class Handle implements InvocationHandler {
+        private final PooledEntry entry;
+        private boolean returned;
+
+        Handle(PooledEntry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "abort":
+                    // The caller could not bring the connection back to a known state (e.g. a transaction it
+                    // opened with a raw BEGIN would not end), so it is closed instead of going back to the pool.
+                    entry.aborted = true;
+                    giveBack();
+                    return null;
+                case "close":
+                    giveBack();
+                    return null;
+                case "isClosed":
+                    return returned || entry.conn.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection@" + Integer.toHexString(System.identityHashCode(proxy));
+                default:
+                    break;
+            }
+
+            if (returned) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+
+            if ("prepareStatement".equals(method.getName()) && args.length == 1) {
+                return entry.statements.prepare((String) args[0]);
+            }
+
+            try {
+                Object result = method.invoke(entry.conn, args);
+                if (result instanceof Statement) {
+                    entry.track((Statement) result);
+                }
+                return result;
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        private synchronized void giveBack() {
+            if (!returned) {
+                returned = true;
+                release(entry);
+            }
+        }
+    }
+}
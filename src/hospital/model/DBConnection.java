@@ -1,27 +1,58 @@
 package hospital.model;
 
+import javafx.application.Platform;
+
 import java.sql.Connection;
-import java.sql.DriverManager;
+import java.sql.Statement;
 
 public class DBConnection {
     private static final String URL = "jdbc:sqlite:hospital.db";
+    private static final int POOL_SIZE = Integer.getInteger("hospital.db.poolSize", 8);
+    private static final long ACQUIRE_TIMEOUT_MS = Long.getLong("hospital.db.acquireTimeoutMs", 10_000);
+    private static final long VALIDATION_INTERVAL_MS = Long.getLong("hospital.db.validationIntervalMs", 30_000);
+    private static final int STATEMENT_CACHE_SIZE = Integer.getInteger("hospital.db.statementCacheSize", 64);
+
+    private static final ConnectionPool POOL;
 
     static {
-        try {            
+        try {
             Class.forName("org.sqlite.JDBC");
         } catch (ClassNotFoundException e) {
             System.err.println("SQLite JDBC driver not found!");
             e.printStackTrace();
         }
+
+        POOL = new ConnectionPool(URL, POOL_SIZE, ACQUIRE_TIMEOUT_MS, VALIDATION_INTERVAL_MS, STATEMENT_CACHE_SIZE);
+        POOL.addSetupHook(conn -> {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("PRAGMA foreign_keys = ON");
+            }
+        });
     }
 
     public static Connection getConnection() {
+        if (Platform.isFxApplicationThread()) {
+            throw new IllegalStateException("Database access on the JavaFX application thread; use hospital.util.Async");
+        }
         try {
-            return DriverManager.getConnection(URL);
+            return POOL.acquire();
         } catch (Exception e) {
             System.err.println("Failed to connect to the database:");
             e.printStackTrace();
             return null;
         }
     }
+
+    public static void addSetupHook(ConnectionPool.ConnectionSetup hook) {
+        POOL.addSetupHook(hook);
+    }
+
+    public static ConnectionPool.Stats getPoolStats() {
+        return POOL.getStats();
+    }
+
+    public static void shutdown() {
+        System.out.println("Database " + POOL.getStats());
+        POOL.close();
+    }
 }
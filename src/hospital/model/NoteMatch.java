@@ -0,0 +1,20 @@
+package hospital.model;
+
+public class NoteMatch {
+    private String patientUsername;
+    private String patientName;
+    private String date;
+    private String snippet;
+
+    public NoteMatch(String patientUsername, String patientName, String date, String snippet) {
+        this.patientUsername = patientUsername;
+        this.patientName = patientName;
+        this.date = date;
+        this.snippet = snippet;
+    }
+
+    public String getPatientUsername() { return patientUsername; }
+    public String getPatientName() { return patientName; }
+    public String getDate() { return date; }
+    public String getSnippet() { return snippet; }
+}
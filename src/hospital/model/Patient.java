@@ -0,0 +1,47 @@
+package hospital.model;
+
+public class Patient {
+    private long id;
+    private String username;
+    private String name;
+    private String phone;
+    private String email;
+    private String gender;
+    private String dob;
+    private String bloodGroup;
+    private String assignedDoctor;
+    private String assignedDoctorName;
+    private String type;
+
+    public Patient(String username, String name, String phone, String email, String gender,
+                   String dob, String bloodGroup, String assignedDoctor, String type) {
+        this(0, username, name, phone, email, gender, dob, bloodGroup, assignedDoctor, null, type);
+    }
+
+    public Patient(long id, String username, String name, String phone, String email, String gender,
+                   String dob, String bloodGroup, String assignedDoctor, String assignedDoctorName, String type) {
+        this.id = id;
+        this.username = username;
+        this.name = name;
+        this.phone = phone;
+        this.email = email;
+        this.gender = gender;
+        this.dob = dob;
+        this.bloodGroup = bloodGroup;
+        this.assignedDoctor = assignedDoctor;
+        this.assignedDoctorName = assignedDoctorName;
+        this.type = type;
+    }
+
+    public long getId() { return id; }
+    public String getUsername() { return username; }
+    public String getName() { return name; }
+    public String getPhone() { return phone; }
+    public String getEmail() { return email; }
+    public String getGender() { return gender; }
+    public String getDob() { return dob; }
+    public String getBloodGroup() { return bloodGroup; }
+    public String getAssignedDoctor() { return assignedDoctor; }
+    public String getAssignedDoctorName() { return assignedDoctorName; }
+    public String getType() { return type; }
+}
@@ -0,0 +1,35 @@
+package hospital.model;
+
+import java.util.List;
+
+// What the patient dashboard shows, read together in one transaction so the parts agree with each other.
+// Immutable; patient is null when the account has no patient_info row.
+public final class PatientSummary {
+    private final String username;
+    private final Patient patient;
+    private final List<Appointment> upcoming;
+    private final List<MedicalHistory> recentHistory;
+
+    public PatientSummary(String username, Patient patient, List<Appointment> upcoming, List<MedicalHistory> recentHistory) {
+        this.username = username;
+        this.patient = patient;
+        this.upcoming = List.copyOf(upcoming);
+        this.recentHistory = List.copyOf(recentHistory);
+    }
+
+    public String getUsername() { return username; }
+    public Patient getPatient() { return patient; }
+    public List<Appointment> getUpcoming() { return upcoming; }
+    public List<MedicalHistory> getRecentHistory() { return recentHistory; }
+
+    public String getDisplayName() {
+        return patient != null && patient.getName() != null ? patient.getName() : username;
+    }
+
+    public String getDoctorDisplayName() {
+        if (patient == null || patient.getAssignedDoctor() == null) {
+            return "Not assigned";
+        }
+        return patient.getAssignedDoctorName() != null ? patient.getAssignedDoctorName() : "Dr. " + patient.getAssignedDoctor();
+    }
+}
@@ -0,0 +1,83 @@
+package hospital.model;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+
+// A repeat rule in the style of an iCalendar RRULE, limited to what the clinics book: FREQ=DAILY or
+// FREQ=WEEKLY with an INTERVAL and a COUNT, e.g. "FREQ=WEEKLY;INTERVAL=2;COUNT=12".
+public class Recurrence {
+
+    public static final int MAX_COUNT = 104;
+
+    private ChronoUnit unit;
+    private int interval;
+    private int count;
+
+    public Recurrence(ChronoUnit unit, int interval, int count) {
+        if (unit != ChronoUnit.DAYS && unit != ChronoUnit.WEEKS) {
+            throw new IllegalArgumentException("Only daily and weekly series are supported");
+        }
+        if (interval < 1 || count < 1 || count > MAX_COUNT) {
+            throw new IllegalArgumentException("A series needs an interval of at least 1 and 1 to " + MAX_COUNT + " occurrences");
+        }
+        this.unit = unit;
+        this.interval = interval;
+        this.count = count;
+    }
+
+    public static Recurrence weekly(int interval, int count) {
+        return new Recurrence(ChronoUnit.WEEKS, interval, count);
+    }
+
+    public static Recurrence parse(String rule) {
+        ChronoUnit unit = null;
+        int interval = 1;
+        int count = 0;
+        for (String part : rule.toUpperCase(Locale.ROOT).split(";")) {
+            String[] pair = part.split("=", 2);
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Malformed rule part '" + part + "'");
+            }
+            switch (pair[0]) {
+                case "FREQ" -> unit = switch (pair[1]) {
+                    case "DAILY" -> ChronoUnit.DAYS;
+                    case "WEEKLY" -> ChronoUnit.WEEKS;
+                    default -> throw new IllegalArgumentException("Unsupported frequency " + pair[1]);
+                };
+                case "INTERVAL" -> interval = Integer.parseInt(pair[1]);
+                case "COUNT" -> count = Integer.parseInt(pair[1]);
+                default -> throw new IllegalArgumentException("Unsupported rule part " + pair[0]);
+            }
+        }
+        return new Recurrence(unit, interval, count);
+    }
+
+    public String toRule() {
+        return "FREQ=" + (unit == ChronoUnit.DAYS ? "DAILY" : "WEEKLY") + ";INTERVAL=" + interval + ";COUNT=" + count;
+    }
+
+    public int getCount() { return count; }
+
+    // Occurrences are computed as they are iterated; nothing is stored for them until they are booked.
+    public Iterable<LocalDateTime> occurrences(LocalDateTime first) {
+        return () -> new Iterator<>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < count;
+            }
+
+            @Override
+            public LocalDateTime next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return first.plus((long) interval * next++, unit);
+            }
+        };
+    }
+}
@@ -0,0 +1,204 @@
+package hospital.model;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Prepared statements for a single pooled connection, keyed by SQL text and evicted in LRU order.
+// A pooled connection is only used by one thread at a time, so no locking is needed here.
+class StatementCache {
+
+    static class Counters {
+        final LongAdder hits = new LongAdder();
+        final LongAdder misses = new LongAdder();
+        final LongAdder evictions = new LongAdder();
+    }
+
+    private final Connection conn;
+    private final int capacity;
+    private final Counters counters;
+    private final List<CachedStatement> uncached = new ArrayList<>();
+    private final LinkedHashMap<String, CachedStatement> statements;
+
+    StatementCache(Connection conn, int capacity, Counters counters) {
+        this.conn = conn;
+        this.capacity = capacity;
+        this.counters = counters;
+        this.statements = new LinkedHashMap<>(Math.max(16, capacity * 2), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                if (size() <= StatementCache.this.capacity) {
+                    return false;
+                }
+                counters.evictions.increment();
+                CachedStatement victim = eldest.getValue();
+                victim.evict();
+                if (victim.inUse) {
+                    uncached.add(victim);
+                }
+                return true;
+            }
+        };
+    }
+
+    PreparedStatement prepare(String sql) throws SQLException {
+        if (capacity > 0) {
+            CachedStatement cached = statements.get(sql);
+            if (cached != null && cached.evicted && !cached.inUse) {
+                statements.remove(sql);
+                cached = null;
+            }
+            if (cached != null && !cached.inUse) {
+                counters.hits.increment();
+                return cached.checkOut();
+            }
+        }
+
+        counters.misses.increment();
+        CachedStatement fresh = new CachedStatement(conn.prepareStatement(sql));
+        if (capacity > 0 && !statements.containsKey(sql)) {
+            statements.put(sql, fresh);
+        } else {
+            // Same SQL already checked out on this connection, or caching disabled.
+            fresh.evicted = true;
+            uncached.add(fresh);
+        }
+        return fresh.checkOut();
+    }
+
+    // Called when the connection goes back to the pool; statements the caller never closed are reset.
+    void releaseAll() {
+        for (CachedStatement cached : statements.values()) {
+            if (cached.inUse) {
+                cached.checkIn();
+            }
+        }
+        for (CachedStatement cached : uncached) {
+            if (cached.inUse) {
+                cached.checkIn();
+            }
+        }
+        uncached.clear();
+    }
+
+    void close() {
+        for (CachedStatement cached : statements.values()) {
+            cached.closeQuietly();
+        }
+        statements.clear();
+        releaseAll();
+    }
+
+    private static class CachedStatement {
+        final PreparedStatement stmt;
+        boolean inUse;
+        boolean evicted;
+        ResultSet lastResult;
+        Object handle;
+
+        CachedStatement(PreparedStatement stmt) {
+            this.stmt = stmt;
+        }
+
+        PreparedStatement checkOut() {
+            inUse = true;
+            Object current = Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(),
+                new Class<?>[] { PreparedStatement.class },
+                new Handle(this));
+            handle = current;
+            return (PreparedStatement) current;
+        }
+
+        void checkIn() {
+            inUse = false;
+            handle = null;
+            try {
+                if (lastResult != null) {
+                    lastResult.close();
+                }
+                stmt.clearParameters();
+            } catch (SQLException e) {
+                evicted = true;
+            }
+            lastResult = null;
+            if (evicted) {
+                closeQuietly();
+            }
+        }
+
+        void evict() {
+            evicted = true;
+            if (!inUse) {
+                closeQuietly();
+            }
+        }
+
+        void closeQuietly() {
+            try {
+                stmt.close();
+            } catch (SQLException ignored) {}
+        }
+    }
+
+    private static class Handle implements InvocationHandler {
+        private final CachedStatement cached;
+
+        Handle(CachedStatement cached) {
+            this.cached = cached;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            boolean current = cached.handle == proxy;
+            switch (method.getName()) {
+                case "close":
+                    if (current) {
+                        cached.checkIn();
+                    }
+                    return null;
+                case "isClosed":
+                    return !current || cached.stmt.isClosed();
+                case "getConnection":
+                    throw new SQLException("getConnection() is not supported on cached statements");
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "CachedStatement@" + Integer.toHexString(System.identityHashCode(proxy));
+                default:
+                    break;
+            }
+
+            if (!current) {
+                throw new SQLException("Statement has already been closed");
+            }
+
+            try {
+                Object result = method.invoke(cached.stmt, args);
+                if (result instanceof ResultSet) {
+                    cached.lastResult = (ResultSet) result;
+                }
+                return result;
+            } catch (InvocationTargetException e) {
+                // sqlite-jdbc finalizes a statement whose execution was interrupted (Statement.cancel),
+                // so it is dropped from the cache instead of being handed out again.
+                if (cached.stmt.isClosed()) {
+                    cached.evicted = true;
+                }
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -1,17 +1,45 @@
 package hospital.model;
 
 public class User {
+    private long id;
     private String username;
     private String password;
     private String role;
+    private String name;
+    private String email;
 
     public User(String username, String password, String role) {
+        this(username, password, role, null, null);
+    }
+
+    public User(String username, String password, String role, String name, String email) {
+        this(0, username, password, role, name, email);
+    }
+
+    public User(long id, String username, String password, String role, String name, String email) {
+        this.id = id;
         this.username = username;
         this.password = password;
         this.role = role;
+        this.name = name;
+        this.email = email;
     }
 
+    public long getId() { return id; }
     public String getUsername() { return username; }
     public String getPassword() { return password; }
     public String getRole() { return role; }
+    public String getName() { return name; }
+    public String getEmail() { return email; }
+
+    public String getDisplayName() {
+        String base = name != null ? name : username;
+        if ("doctor".equalsIgnoreCase(role)) {
+            return base.toLowerCase().startsWith("dr.") ? base : "Dr. " + base;
+        }
+        if ("admin".equalsIgnoreCase(role) && name == null) {
+            return "Administrator";
+        }
+        return base;
+    }
 }
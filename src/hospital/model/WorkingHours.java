@@ -0,0 +1,20 @@
+package hospital.model;
+
+public class WorkingHours {
+
+    public static final WorkingHours DEFAULT = new WorkingHours(9 * 60, 17 * 60, 30);
+
+    private int startMinute;
+    private int endMinute;
+    private int slotMinutes;
+
+    public WorkingHours(int startMinute, int endMinute, int slotMinutes) {
+        this.startMinute = startMinute;
+        this.endMinute = endMinute;
+        this.slotMinutes = slotMinutes;
+    }
+
+    public int getStartMinute() { return startMinute; }
+    public int getEndMinute() { return endMinute; }
+    public int getSlotMinutes() { return slotMinutes; }
+}
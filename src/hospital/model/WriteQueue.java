@@ -0,0 +1,262 @@
+package hospital.model;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// All INSERT/UPDATE/DELETE work goes through one writer thread. Mutations queued within the same
+// flush window share a single transaction (one fsync); each runs inside its own savepoint so a
+// failing mutation is rolled back on its own without taking the rest of the group with it.
+public class WriteQueue {
+
+    public interface Mutation<T> {
+        T apply(Connection conn) throws SQLException;
+    }
+
+    private static final int MAX_BATCH = Integer.getInteger("hospital.db.writeBatchSize", 256);
+    private static final long FLUSH_WINDOW_MICROS = Long.getLong("hospital.db.writeWindowMicros", 2_000);
+
+    private static final BusyRetry BUSY = new BusyRetry(
+            Integer.getInteger("hospital.db.busyAttempts", 12),
+            Long.getLong("hospital.db.busyBackoffMs", 5),
+            Long.getLong("hospital.db.busyBackoffMaxMs", 1_000));
+
+    private static final WriteQueue INSTANCE = new WriteQueue(MAX_BATCH, FLUSH_WINDOW_MICROS);
+
+    private final int maxBatch;
+    private final long flushWindowNanos;
+    private final BlockingQueue<Pending<?>> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    private final LongAdder mutationCount = new LongAdder();
+    private final LongAdder failedCount = new LongAdder();
+    private final LongAdder commitCount = new LongAdder();
+    private final LongAdder totalCommitNanos = new LongAdder();
+    private final AtomicLong largestBatch = new AtomicLong();
+
+    private WriteQueue(int maxBatch, long flushWindowMicros) {
+        this.maxBatch = Math.max(1, maxBatch);
+        this.flushWindowNanos = TimeUnit.MICROSECONDS.toNanos(flushWindowMicros);
+        this.writer = new Thread(this::runWriter, "db-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    public static <T> CompletableFuture<T> submit(Mutation<T> mutation) {
+        return INSTANCE.enqueue(mutation);
+    }
+
+    // Blocking variant for callers that need the outcome before they can continue.
+    public static <T> T execute(Mutation<T> mutation) throws SQLException {
+        try {
+            return submit(mutation).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for write to commit", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new SQLException(cause.getMessage(), cause);
+        }
+    }
+
+    public static BusyRetry.Stats getBusyStats() {
+        return BUSY.getStats();
+    }
+
+    public static void shutdown() {
+        INSTANCE.stop();
+        System.out.println("Write queue " + INSTANCE.describeStats() + " " + BUSY.getStats());
+    }
+
+    // The running check and the add happen under the same lock that stop() and the writer's exit take, so an
+    // item is either rejected here or is in the queue before the writer's last drain.
+    private <T> CompletableFuture<T> enqueue(Mutation<T> mutation) {
+        Pending<T> pending = new Pending<>(mutation);
+        synchronized (this) {
+            if (running) {
+                queue.add(pending);
+                return pending.future;
+            }
+        }
+        pending.future.completeExceptionally(new SQLException("Write queue is shut down"));
+        return pending.future;
+    }
+
+    private void stop() {
+        synchronized (this) {
+            running = false;
+        }
+        try {
+            writer.join(5_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runWriter() {
+        List<Pending<?>> batch = new ArrayList<>(maxBatch);
+        try {
+            while (running || !queue.isEmpty()) {
+                try {
+                    collectBatch(batch);
+                } catch (InterruptedException e) {
+                    queue.drainTo(batch, maxBatch - batch.size());
+                }
+                if (!batch.isEmpty()) {
+                    flush(batch);
+                    batch.clear();
+                }
+            }
+        } finally {
+            // However the loop ends, nothing may be left waiting on a writer that is gone.
+            synchronized (this) {
+                running = false;
+            }
+            queue.drainTo(batch);
+            for (Pending<?> pending : batch) {
+                pending.future.completeExceptionally(new SQLException("Write queue is shut down"));
+            }
+        }
+    }
+
+    private void collectBatch(List<Pending<?>> batch) throws InterruptedException {
+        Pending<?> first = queue.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null) return;
+        batch.add(first);
+
+        long deadline = System.nanoTime() + flushWindowNanos;
+        while (batch.size() < maxBatch) {
+            queue.drainTo(batch, maxBatch - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= maxBatch || remaining <= 0) break;
+            Pending<?> next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) break;
+            batch.add(next);
+        }
+    }
+
+    // Each group runs in a BEGIN IMMEDIATE transaction, which takes the write lock before the first mutation
+    // reads anything. Under the default deferred BEGIN a mutation that reads and then writes (a booking checks
+    // the day first) has to upgrade its lock, and fails at once with SQLITE_BUSY if another workstation
+    // committed in between. Waiting for the lock is left to BUSY rather than SQLite's busy handler, so every
+    // wait is counted.
+    private void flush(List<Pending<?>> batch) {
+        long start = System.nanoTime();
+        try (Connection conn = DBConnection.getConnection()) {
+            if (conn == null) {
+                throw new SQLException("No database connection available for writes");
+            }
+
+            try (Statement stmt = conn.createStatement()) {
+                int busyTimeout = busyTimeout(stmt);
+                stmt.execute("PRAGMA busy_timeout = 0");
+                try {
+                    BUSY.run(() -> stmt.execute("BEGIN IMMEDIATE"));
+                    try {
+                        for (Pending<?> pending : batch) {
+                            stmt.execute("SAVEPOINT write_item");
+                            try {
+                                pending.run(conn);
+                                stmt.execute("RELEASE write_item");
+                            } catch (Throwable e) {
+                                stmt.execute("ROLLBACK TO write_item");
+                                stmt.execute("RELEASE write_item");
+                                pending.error = e;
+                            }
+                        }
+                        BUSY.run(() -> stmt.execute("COMMIT"));
+                    } catch (SQLException | RuntimeException | Error e) {
+                        rollback(stmt);
+                        throw e;
+                    }
+                } finally {
+                    stmt.execute("PRAGMA busy_timeout = " + busyTimeout);
+                }
+            }
+        } catch (Throwable e) {
+            for (Pending<?> pending : batch) {
+                if (pending.error == null) {
+                    pending.error = e;
+                }
+            }
+        }
+
+        commitCount.increment();
+        totalCommitNanos.add(System.nanoTime() - start);
+        mutationCount.add(batch.size());
+        largestBatch.accumulateAndGet(batch.size(), Math::max);
+
+        for (Pending<?> pending : batch) {
+            if (pending.error != null) {
+                failedCount.increment();
+            }
+            pending.complete();
+        }
+    }
+
+    private static int busyTimeout(Statement stmt) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("PRAGMA busy_timeout")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private static void rollback(Statement stmt) {
+        try {
+            stmt.execute("ROLLBACK");
+        } catch (SQLException e) {
+            System.err.println("Failed to roll back write group: " + e.getMessage());
+        }
+    }
+
+    private String describeStats() {
+        long commits = commitCount.sum();
+        long mutations = mutationCount.sum();
+        return String.format("writes[mutations=%d failed=%d commits=%d avgBatch=%.1f maxBatch=%d avgCommit=%.3fms]",
+                mutations, failedCount.sum(), commits,
+                commits == 0 ? 0 : (double) mutations / commits, largestBatch.get(),
+                commits == 0 ? 0 : totalCommitNanos.sum() / 1_000_000.0 / commits);
+    }
+
+    private static class Pending<T> {
+        final Mutation<T> mutation;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        T result;
+        Throwable error;
+
+        Pending(Mutation<T> mutation) {
+            this.mutation = mutation;
+        }
+
+        void run(Connection conn) throws SQLException {
+            result = mutation.apply(conn);
+        }
+
+        void complete() {
+            if (error != null) {
+                future.completeExceptionally(error);
+            } else {
+                future.complete(result);
+            }
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package hospital.repository;
+
+import hospital.model.AgendaEntry;
+import hospital.model.Appointment;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+// start_at is local time as "YYYY-MM-DDTHH:MM", so text order is time order and every range below ("today",
+// "from now on", "latest") is one seek into idx_appointment_doctor_start or idx_appointment_patient_start.
+public final class AppointmentRepository {
+
+    private static final DateTimeFormatter START_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm");
+
+    private static final String SELECT = "SELECT doc.username, doc.name, pu.username, a.start_at, a.duration_minutes, " +
+            "COALESCE(a.series_id, 0) " +
+            "FROM users pu JOIN appointments a ON a.patient_id = pu.id JOIN users doc ON doc.id = a.doctor_id ";
+
+    private static final String UPCOMING = SELECT + "WHERE pu.username = ? AND a.start_at >= ? ORDER BY a.start_at";
+
+    private static final String AGENDA = "SELECT d.username, d.name, pu.username, COALESCE(p.name, pu.username), " +
+            "a.start_at, a.duration_minutes " +
+            "FROM users d " +
+            "JOIN appointments a ON a.doctor_id = d.id AND a.start_at >= ? AND a.start_at < ? " +
+            "JOIN users pu ON pu.id = a.patient_id " +
+            "LEFT JOIN patient_info p ON p.user_id = a.patient_id " +
+            "WHERE d.username IN (SELECT value FROM json_each(?)) " +
+            "ORDER BY a.start_at";
+
+    private static final String BOOKED = "SELECT a.start_at, a.duration_minutes FROM users d " +
+            "JOIN appointments a ON a.doctor_id = d.id AND a.start_at >= ? AND a.start_at < ? WHERE d.username = ?";
+
+    private AppointmentRepository() {}
+
+    private static Appointment map(ResultSet rs) throws SQLException {
+        return new Appointment(rs.getString(1), rs.getString(2), rs.getString(3), LocalDateTime.parse(rs.getString(4)),
+                rs.getInt(5), rs.getLong(6));
+    }
+
+    static String toStart(LocalDateTime time) {
+        return START_FORMAT.format(time);
+    }
+
+    public static List<AgendaEntry> findDailyAgenda(Collection<String> doctorUsernames, LocalDate day) throws SQLException {
+        return findAgenda(doctorUsernames, day.atStartOfDay(), day.plusDays(1).atStartOfDay());
+    }
+
+    public static List<AgendaEntry> findDailyAgenda(Connection conn, Collection<String> doctorUsernames, LocalDate day)
+            throws SQLException {
+        if (doctorUsernames.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return Jdbc.query(conn, AGENDA, agendaFor(doctorUsernames, day.atStartOfDay(), day.plusDays(1).atStartOfDay()),
+                AppointmentRepository::mapAgenda);
+    }
+
+    // Appointments starting in [from, to) for a set of doctors, in start order, with doctor and patient names
+    // resolved in the same query. Driven from users(username) into idx_appointment_doctor_start.
+    public static List<AgendaEntry> findAgenda(Collection<String> doctorUsernames, LocalDateTime from, LocalDateTime to)
+            throws SQLException {
+        if (doctorUsernames.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return Jdbc.query(AGENDA, agendaFor(doctorUsernames, from, to), AppointmentRepository::mapAgenda);
+    }
+
+    private static Jdbc.Binder agendaFor(Collection<String> doctorUsernames, LocalDateTime from, LocalDateTime to) {
+        return stmt -> {
+            stmt.setString(1, toStart(from));
+            stmt.setString(2, toStart(to));
+            stmt.setString(3, Jdbc.toJsonArray(doctorUsernames));
+        };
+    }
+
+    private static AgendaEntry mapAgenda(ResultSet rs) throws SQLException {
+        return new AgendaEntry(rs.getString(1), rs.getString(2), rs.getString(3), rs.getString(4),
+                LocalDateTime.parse(rs.getString(5)), rs.getInt(6));
+    }
+
+    // Start and length of everything booked with a doctor on one day; an index-only range scan.
+    public static List<Appointment> findBooked(String doctorUsername, LocalDate day) throws SQLException {
+        return Jdbc.query(BOOKED, bookedOn(doctorUsername, day), rs -> mapBooked(rs, doctorUsername));
+    }
+
+    public static List<Appointment> findBooked(Connection conn, String doctorUsername, LocalDate day) throws SQLException {
+        return Jdbc.query(conn, BOOKED, bookedOn(doctorUsername, day), rs -> mapBooked(rs, doctorUsername));
+    }
+
+    private static Jdbc.Binder bookedOn(String doctorUsername, LocalDate day) {
+        return stmt -> {
+            stmt.setString(1, toStart(day.atStartOfDay()));
+            stmt.setString(2, toStart(day.plusDays(1).atStartOfDay()));
+            stmt.setString(3, doctorUsername);
+        };
+    }
+
+    private static Appointment mapBooked(ResultSet rs, String doctorUsername) throws SQLException {
+        return new Appointment(doctorUsername, null, LocalDateTime.parse(rs.getString(1)), rs.getInt(2));
+    }
+
+    // Everything booked with a set of doctors over [fromDay, toDay), for filling the scheduling engine's
+    // day index for a whole search horizon in one query.
+    public static List<Appointment> findBooked(Collection<String> doctorUsernames, LocalDate fromDay, LocalDate toDay)
+            throws SQLException {
+        if (doctorUsernames.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return Jdbc.query("SELECT d.username, a.start_at, a.duration_minutes FROM users d " +
+                "JOIN appointments a ON a.doctor_id = d.id AND a.start_at >= ? AND a.start_at < ? " +
+                "WHERE d.username IN (SELECT value FROM json_each(?))", stmt -> {
+            stmt.setString(1, toStart(fromDay.atStartOfDay()));
+            stmt.setString(2, toStart(toDay.atStartOfDay()));
+            stmt.setString(3, Jdbc.toJsonArray(doctorUsernames));
+        }, rs -> new Appointment(rs.getString(1), null, LocalDateTime.parse(rs.getString(2)), rs.getInt(3)));
+    }
+
+    // One doctor's bookings over [fromDay, toDay) on the writer's connection, leaving out one series (0 for
+    // none) so a series being moved is not checked against its own occurrences.
+    public static List<Appointment> findBooked(Connection conn, String doctorUsername, LocalDate fromDay, LocalDate toDay,
+                                               long excludeSeriesId) throws SQLException {
+        return Jdbc.query(conn, "SELECT a.start_at, a.duration_minutes FROM users d " +
+                "JOIN appointments a ON a.doctor_id = d.id AND a.start_at >= ? AND a.start_at < ? " +
+                "WHERE d.username = ? AND a.series_id IS NOT ?", stmt -> {
+            stmt.setString(1, toStart(fromDay.atStartOfDay()));
+            stmt.setString(2, toStart(toDay.atStartOfDay()));
+            stmt.setString(3, doctorUsername);
+            stmt.setLong(4, excludeSeriesId);
+        }, rs -> mapBooked(rs, doctorUsername));
+    }
+
+    public static List<Appointment> findSeriesFrom(Connection conn, long seriesId, LocalDateTime from) throws SQLException {
+        return Jdbc.query(conn, SELECT + "WHERE a.series_id = ? AND a.start_at >= ? ORDER BY a.start_at", stmt -> {
+            stmt.setLong(1, seriesId);
+            stmt.setString(2, toStart(from));
+        }, AppointmentRepository::map);
+    }
+
+    public static List<Appointment> findUpcomingForPatient(String patientUsername, LocalDateTime from) throws SQLException {
+        return Jdbc.query(UPCOMING, upcomingFor(patientUsername, from), AppointmentRepository::map);
+    }
+
+    public static List<Appointment> findUpcomingForPatient(Connection conn, String patientUsername, LocalDateTime from)
+            throws SQLException {
+        return Jdbc.query(conn, UPCOMING, upcomingFor(patientUsername, from), AppointmentRepository::map);
+    }
+
+    private static Jdbc.Binder upcomingFor(String patientUsername, LocalDateTime from) {
+        return stmt -> {
+            stmt.setString(1, patientUsername);
+            stmt.setString(2, toStart(from));
+        };
+    }
+
+    public static Appointment findLatestForPatient(String patientUsername) throws SQLException {
+        return Jdbc.queryOne(SELECT + "WHERE pu.username = ? ORDER BY a.start_at DESC LIMIT 1",
+                stmt -> stmt.setString(1, patientUsername), AppointmentRepository::map);
+    }
+
+    // getDoctor() and getPatientName() are usernames; the doctor's name is only filled in on reads.
+    public static long insert(Connection conn, Appointment appointment) throws SQLException {
+        return Jdbc.insert(conn, "INSERT INTO appointments (doctor_id, patient_id, start_at, duration_minutes) " +
+                "SELECT doc.id, pu.id, ?, ? FROM users doc, users pu WHERE doc.username = ? AND pu.username = ?", stmt -> {
+            stmt.setString(1, toStart(appointment.getStart()));
+            stmt.setInt(2, appointment.getDurationMinutes());
+            stmt.setString(3, appointment.getDoctor());
+            stmt.setString(4, appointment.getPatientName());
+        });
+    }
+
+    public static int delete(Connection conn, String doctorUsername, String patientUsername, LocalDateTime start)
+            throws SQLException {
+        return Jdbc.update(conn, "DELETE FROM appointments WHERE start_at = ? " +
+                "AND doctor_id = (SELECT id FROM users WHERE username = ?) " +
+                "AND patient_id = (SELECT id FROM users WHERE username = ?)", stmt -> {
+            stmt.setString(1, toStart(start));
+            stmt.setString(2, doctorUsername);
+            stmt.setString(3, patientUsername);
+        });
+    }
+
+    public static long insertSeries(Connection conn, Appointment first, String rule) throws SQLException {
+        return Jdbc.insert(conn, "INSERT INTO appointment_series (doctor_id, patient_id, first_start, duration_minutes, rule) " +
+                "SELECT doc.id, pu.id, ?, ?, ? FROM users doc, users pu WHERE doc.username = ? AND pu.username = ?", stmt -> {
+            stmt.setString(1, toStart(first.getStart()));
+            stmt.setInt(2, first.getDurationMinutes());
+            stmt.setString(3, rule);
+            stmt.setString(4, first.getDoctor());
+            stmt.setString(5, first.getPatientName());
+        });
+    }
+
+    // All occurrences in one statement; the start times travel as one JSON array like the batch lookups.
+    public static int insertOccurrences(Connection conn, long seriesId, Collection<LocalDateTime> starts) throws SQLException {
+        List<String> values = new ArrayList<>(starts.size());
+        for (LocalDateTime start : starts) {
+            values.add(toStart(start));
+        }
+        return Jdbc.update(conn, "INSERT INTO appointments (doctor_id, patient_id, start_at, duration_minutes, series_id) " +
+                "SELECT s.doctor_id, s.patient_id, j.value, s.duration_minutes, s.id " +
+                "FROM appointment_series s, json_each(?) j WHERE s.id = ?", stmt -> {
+            stmt.setString(1, Jdbc.toJsonArray(values));
+            stmt.setLong(2, seriesId);
+        });
+    }
+
+    // Moves every occurrence from `from` on to a new time of day, keeping each one's date.
+    public static int moveSeries(Connection conn, long seriesId, LocalDateTime from, LocalTime time) throws SQLException {
+        return Jdbc.update(conn, "UPDATE appointments SET start_at = substr(start_at, 1, 11) || ? " +
+                "WHERE series_id = ? AND start_at >= ?", stmt -> {
+            stmt.setString(1, time.format(DateTimeFormatter.ofPattern("HH:mm")));
+            stmt.setLong(2, seriesId);
+            stmt.setString(3, toStart(from));
+        });
+    }
+
+    public static int deleteSeries(Connection conn, long seriesId, LocalDateTime from) throws SQLException {
+        return Jdbc.update(conn, "DELETE FROM appointments WHERE series_id = ? AND start_at >= ?", stmt -> {
+            stmt.setLong(1, seriesId);
+            stmt.setString(2, toStart(from));
+        });
+    }
+}
@@ -0,0 +1,40 @@
+package hospital.repository;
+
+import hospital.util.LatencyTimer;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Reads every section of a dashboard on one connection inside one deferred read transaction. In WAL mode the
+// first query fixes the snapshot, so the sections agree with each other while writers keep committing; the
+// snapshot is held until the last section has been read, which keeps checkpoints from reclaiming the WAL
+// behind it, so the sections should read and not wait on anything else. How long each dashboard holds its
+// snapshot is recorded by name.
+public final class DashboardSnapshot {
+
+    public interface Sections<T> {
+        T read(Connection conn) throws SQLException;
+    }
+
+    private static final Map<String, LatencyTimer> TIMERS = new ConcurrentHashMap<>();
+
+    private DashboardSnapshot() {}
+
+    public static <T> T read(String dashboard, Sections<T> sections) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return Jdbc.read(sections::read);
+        } finally {
+            TIMERS.computeIfAbsent(dashboard, k -> new LatencyTimer()).add(System.nanoTime() - start);
+        }
+    }
+
+    public static String summary() {
+        StringBuilder out = new StringBuilder("snapshots[dashboards=" + TIMERS.size() + "]");
+        new TreeMap<>(TIMERS).forEach((dashboard, timer) -> out.append(String.format("%n  %s %s", dashboard, timer)));
+        return out.toString();
+    }
+}
@@ -0,0 +1,117 @@
+package hospital.repository;
+
+import hospital.model.MedicalHistory;
+import hospital.model.NoteMatch;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+
+public final class HistoryRepository {
+
+    // snippet() wraps each matched term in these, for the UI to highlight.
+    public static final char MATCH_START = 2;
+    public static final char MATCH_END = 3;
+
+    private static final String SEARCH = "SELECT u.username, COALESCE(p.name, u.name), h.date, " +
+            "snippet(medical_history_search, 0, char(2), char(3), '…', 16) " +
+            "FROM medical_history_search CROSS JOIN medical_history h ON h.id = medical_history_search.rowid " +
+            "JOIN users u ON u.id = h.patient_id LEFT JOIN patient_info p ON p.user_id = h.patient_id " +
+            "WHERE medical_history_search MATCH ? ";
+
+    private static final String HISTORY = "SELECT u.username, h.date, h.notes FROM users u " +
+            "JOIN medical_history h ON h.patient_id = u.id WHERE u.username = ? ";
+
+    private HistoryRepository() {}
+
+    private static MedicalHistory map(ResultSet rs) throws SQLException {
+        return new MedicalHistory(rs.getString(1), rs.getString(2), rs.getString(3));
+    }
+
+    // The timeline is newest first and paged by date: (patient_id, date) is unique, so the date of the last
+    // record shown is the keyset and both queries are range scans of that UNIQUE index. A null date starts
+    // from the newest record.
+    public static List<MedicalHistory> findOlder(String patientUsername, String beforeDate, int limit)
+            throws SQLException {
+        return Jdbc.query(older(beforeDate), olderBinder(patientUsername, beforeDate, limit), HistoryRepository::map);
+    }
+
+    public static List<MedicalHistory> findOlder(Connection conn, String patientUsername, String beforeDate, int limit)
+            throws SQLException {
+        return Jdbc.query(conn, older(beforeDate), olderBinder(patientUsername, beforeDate, limit), HistoryRepository::map);
+    }
+
+    private static String older(String beforeDate) {
+        return HISTORY + (beforeDate == null ? "" : "AND h.date < ? ") + "ORDER BY h.date DESC LIMIT ?";
+    }
+
+    private static Jdbc.Binder olderBinder(String patientUsername, String beforeDate, int limit) {
+        return stmt -> {
+            int i = 1;
+            stmt.setString(i++, patientUsername);
+            if (beforeDate != null) {
+                stmt.setString(i++, beforeDate);
+            }
+            stmt.setInt(i, limit);
+        };
+    }
+
+    // The records just newer than afterDate, still newest first, for scrolling back up the timeline.
+    public static List<MedicalHistory> findNewer(String patientUsername, String afterDate, int limit)
+            throws SQLException {
+        List<MedicalHistory> records = Jdbc.query(HISTORY + "AND h.date > ? ORDER BY h.date LIMIT ?", stmt -> {
+            stmt.setString(1, patientUsername);
+            stmt.setString(2, afterDate);
+            stmt.setInt(3, limit);
+        }, HistoryRepository::map);
+        Collections.reverse(records);
+        return records;
+    }
+
+    // Best matches first (bm25). Admins search every note; doctors their own patients, nurses the patients of
+    // the doctors they work under, and anyone else only their own history.
+    public static List<NoteMatch> searchNotes(String text, String callerUsername, String callerRole, int limit)
+            throws SQLException {
+        String match = Jdbc.matchPattern(text);
+        if (match == null) {
+            return List.of();
+        }
+
+        String role = UserRepository.normalizeRole(callerRole);
+        String scope = switch (role == null ? "" : role) {
+            case "admin" -> "";
+            case "doctor" -> "AND p.assigned_doctor_id = (SELECT id FROM users WHERE username = ?) ";
+            case "nurse" -> "AND p.assigned_doctor_id IN (SELECT d.doctor_id FROM doctor_nurse_assignment d " +
+                    "JOIN users n ON n.id = d.nurse_id WHERE n.username = ?) ";
+            default -> "AND u.username = ? ";
+        };
+
+        return Jdbc.query(SEARCH + scope + "ORDER BY medical_history_search.rank LIMIT ?", stmt -> {
+            int i = 1;
+            stmt.setString(i++, match);
+            if (!scope.isEmpty()) {
+                stmt.setString(i++, callerUsername);
+            }
+            stmt.setInt(i, limit);
+        }, rs -> new NoteMatch(rs.getString(1), rs.getString(2), rs.getString(3), rs.getString(4)));
+    }
+
+    public static long insert(Connection conn, MedicalHistory record) throws SQLException {
+        return Jdbc.insert(conn, "INSERT INTO medical_history (patient_id, date, notes) " +
+                "SELECT id, ?, ? FROM users WHERE username = ?", stmt -> {
+            stmt.setString(1, record.getDate());
+            stmt.setString(2, record.getNotes());
+            stmt.setString(3, record.getPatientUsername());
+        });
+    }
+
+    public static long insertNow(Connection conn, String patientUsername, String notes) throws SQLException {
+        return Jdbc.insert(conn, "INSERT INTO medical_history (patient_id, date, notes) " +
+                "SELECT id, datetime('now'), ? FROM users WHERE username = ?", stmt -> {
+            stmt.setString(1, notes);
+            stmt.setString(2, patientUsername);
+        });
+    }
+}
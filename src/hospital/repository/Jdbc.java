@@ -0,0 +1,223 @@
+package hospital.repository;
+
+import hospital.model.DBConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Shared plumbing for the repositories. Statements are always prepared with the one-argument
+// prepareStatement so the pool's per-connection statement cache can reuse them.
+final class Jdbc {
+
+    interface Binder {
+        void bind(PreparedStatement stmt) throws SQLException;
+    }
+
+    interface RowMapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+
+    interface Work<T> {
+        T apply(Connection conn) throws SQLException;
+    }
+
+    static final Binder NO_PARAMS = stmt -> {};
+
+    private Jdbc() {}
+
+    static <T> List<T> query(String sql, Binder binder, RowMapper<T> mapper) throws SQLException {
+        try (Connection conn = open()) {
+            return query(conn, sql, binder, mapper);
+        }
+    }
+
+    static <T> List<T> query(Connection conn, String sql, Binder binder, RowMapper<T> mapper) throws SQLException {
+        long start = System.nanoTime();
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            binder.bind(stmt);
+            QueryCancellation.enter(stmt);
+            try (ResultSet rs = stmt.executeQuery()) {
+                List<T> rows = new ArrayList<>();
+                while (rs.next()) {
+                    rows.add(mapper.map(rs));
+                }
+                return rows;
+            } finally {
+                QueryCancellation.exit();
+            }
+        } finally {
+            QueryStats.record(sql, System.nanoTime() - start);
+        }
+    }
+
+    static <T> T queryOne(String sql, Binder binder, RowMapper<T> mapper) throws SQLException {
+        try (Connection conn = open()) {
+            return queryOne(conn, sql, binder, mapper);
+        }
+    }
+
+    static <T> T queryOne(Connection conn, String sql, Binder binder, RowMapper<T> mapper) throws SQLException {
+        long start = System.nanoTime();
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            binder.bind(stmt);
+            QueryCancellation.enter(stmt);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? mapper.map(rs) : null;
+            } finally {
+                QueryCancellation.exit();
+            }
+        } finally {
+            QueryStats.record(sql, System.nanoTime() - start);
+        }
+    }
+
+    // Runs several reads on one connection inside one read transaction. In WAL mode every query in it sees the
+    // database as of the first one, so the results agree with each other even while writers commit.
+    // BEGIN and END go through the statement cache; the driver's setAutoCommit/rollback would run four
+    // uncached statements instead.
+    static <T> T read(Work<T> work) throws SQLException {
+        try (Connection conn = open()) {
+            execute(conn, "BEGIN");
+            T result;
+            try {
+                result = work.apply(conn);
+            } catch (SQLException | RuntimeException | Error e) {
+                end(conn, e);
+                throw e;
+            }
+            end(conn, null);
+            return result;
+        }
+    }
+
+    // The pool only resets connections it saw leave autocommit, which a raw BEGIN does not. If END fails the
+    // transaction is rolled back, and if that fails too the connection is aborted so the pool closes it rather
+    // than lending out a connection that pins an old snapshot. A failure here is attached to the work's own
+    // exception instead of replacing it.
+    private static void end(Connection conn, Throwable primary) throws SQLException {
+        try {
+            execute(conn, "END");
+        } catch (SQLException e) {
+            try {
+                execute(conn, "ROLLBACK");
+            } catch (SQLException rollbackFailed) {
+                e.addSuppressed(rollbackFailed);
+                conn.abort(Runnable::run);
+            }
+            if (primary == null) {
+                throw e;
+            }
+            primary.addSuppressed(e);
+        }
+    }
+
+    private static void execute(Connection conn, String sql) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.execute();
+        }
+    }
+
+    static int update(Connection conn, String sql, Binder binder) throws SQLException {
+        long start = System.nanoTime();
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            binder.bind(stmt);
+            return stmt.executeUpdate();
+        } finally {
+            QueryStats.record(sql, System.nanoTime() - start);
+        }
+    }
+
+    // Inserts exactly one row and returns its rowid. Inserts written as INSERT ... SELECT resolve usernames
+    // to ids and insert nothing when a name does not match, which is reported as an error here.
+    static long insert(Connection conn, String sql, Binder binder) throws SQLException {
+        if (update(conn, sql, binder) == 0) {
+            throw new SQLException("No row inserted; referenced user not found");
+        }
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT last_insert_rowid()");
+             ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    // Looks up a two-column (key, value) mapping for a batch of keys. The keys are passed as one
+    // JSON array parameter so the SQL text, and therefore the cached statement, is the same for any batch size.
+    static Map<String, String> lookup(String sql, Collection<String> keys) throws SQLException {
+        Map<String, String> result = new HashMap<>();
+        if (keys.isEmpty()) {
+            return result;
+        }
+        for (String[] row : query(sql, stmt -> stmt.setString(1, toJsonArray(keys)),
+                rs -> new String[] { rs.getString(1), rs.getString(2) })) {
+            result.put(row[0], row[1]);
+        }
+        return result;
+    }
+
+    static String likePattern(String filter) {
+        return filter == null || filter.isEmpty() ? null : "%" + filter.toLowerCase() + "%";
+    }
+
+    // Turns free text into an FTS5 query in which every word has to match the start of a token. Words are
+    // quoted, so anything the user types is searched for literally rather than parsed as FTS5 syntax.
+    static String matchPattern(String text) {
+        if (text == null) {
+            return null;
+        }
+        StringBuilder match = new StringBuilder();
+        for (String word : text.trim().split("\\s+")) {
+            if (word.codePoints().noneMatch(Character::isLetterOrDigit)) {
+                continue;
+            }
+            if (match.length() > 0) {
+                match.append(' ');
+            }
+            match.append('"').append(word.replace("\"", "\"\"")).append("\"*");
+        }
+        return match.length() == 0 ? null : match.toString();
+    }
+
+    private static Connection open() throws SQLException {
+        Connection conn = DBConnection.getConnection();
+        if (conn == null) {
+            throw new SQLException("No database connection available");
+        }
+        return conn;
+    }
+
+    static String toJsonArray(Collection<String> values) {
+        StringBuilder json = new StringBuilder("[");
+        for (String value : values) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            if (value == null) {
+                json.append("null");
+                continue;
+            }
+            json.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '"' -> json.append("\\\"");
+                    case '\\' -> json.append("\\\\");
+                    default -> {
+                        if (c < 0x20) {
+                            json.append(String.format("\\u%04x", (int) c));
+                        } else {
+                            json.append(c);
+                        }
+                    }
+                }
+            }
+            json.append('"');
+        }
+        return json.append(']').toString();
+    }
+}
@@ -0,0 +1,158 @@
+package hospital.repository;
+
+import hospital.model.Patient;
+import hospital.model.PatientSummary;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+public final class PatientRepository {
+
+    private static final String SELECT = "SELECT u.id, u.username, p.name, p.phone, p.email, p.gender, p.dob, " +
+            "p.blood_group, doc.username, doc.name, p.type " +
+            "FROM patient_info p JOIN users u ON u.id = p.user_id " +
+            "LEFT JOIN users doc ON doc.id = p.assigned_doctor_id ";
+
+    private static final String DOCTOR_ROSTER_VERSION = "SELECT COALESCE(MAX(version), 0) FROM roster_version " +
+            "WHERE user_id = (SELECT id FROM users WHERE username = ?)";
+
+    private static final String NURSE_ROSTER_VERSION = "SELECT COALESCE(MAX(version), 0) FROM roster_version " +
+            "WHERE user_id IN (SELECT id FROM users WHERE username = ? UNION ALL SELECT d.doctor_id " +
+            "FROM doctor_nurse_assignment d JOIN users n ON n.id = d.nurse_id WHERE n.username = ?)";
+
+    private static final String BY_DOCTOR = SELECT +
+            "WHERE p.assigned_doctor_id = (SELECT id FROM users WHERE username = ?) " +
+            "AND (? IS NULL OR LOWER(p.name) LIKE ?)";
+
+    private static final String FOR_NURSE = SELECT +
+            "WHERE p.assigned_doctor_id IN (SELECT d.doctor_id FROM doctor_nurse_assignment d " +
+            "JOIN users n ON n.id = d.nurse_id WHERE n.username = ?) " +
+            "AND (? IS NULL OR LOWER(p.name) LIKE ?)";
+
+    private PatientRepository() {}
+
+    private static Patient map(ResultSet rs) throws SQLException {
+        return new Patient(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4), rs.getString(5),
+                rs.getString(6), rs.getString(7), rs.getString(8), rs.getString(9), rs.getString(10), rs.getString(11));
+    }
+
+    public static Patient findByUsername(String username) throws SQLException {
+        return Jdbc.queryOne(SELECT + "WHERE u.username = ?",
+                stmt -> stmt.setString(1, username), PatientRepository::map);
+    }
+
+    public static Patient findByUsername(Connection conn, String username) throws SQLException {
+        return Jdbc.queryOne(conn, SELECT + "WHERE u.username = ?",
+                stmt -> stmt.setString(1, username), PatientRepository::map);
+    }
+
+    // Everything the patient dashboard shows, read in one transaction on one connection.
+    public static PatientSummary findSummary(String username, LocalDateTime upcomingFrom, int historyLimit)
+            throws SQLException {
+        return Jdbc.read(conn -> new PatientSummary(username, findByUsername(conn, username),
+                AppointmentRepository.findUpcomingForPatient(conn, username, upcomingFrom),
+                HistoryRepository.findOlder(conn, username, null, historyLimit)));
+    }
+
+    // The roster_version stamps of a doctor's patient list and a nurse's; 0 until something in them changes.
+    public static long findDoctorRosterVersion(String doctorUsername) throws SQLException {
+        return Jdbc.queryOne(DOCTOR_ROSTER_VERSION, stmt -> stmt.setString(1, doctorUsername), rs -> rs.getLong(1));
+    }
+
+    public static long findDoctorRosterVersion(Connection conn, String doctorUsername) throws SQLException {
+        return Jdbc.queryOne(conn, DOCTOR_ROSTER_VERSION, stmt -> stmt.setString(1, doctorUsername), rs -> rs.getLong(1));
+    }
+
+    public static long findNurseRosterVersion(String nurseUsername) throws SQLException {
+        return Jdbc.queryOne(NURSE_ROSTER_VERSION, nurseVersion(nurseUsername), rs -> rs.getLong(1));
+    }
+
+    public static long findNurseRosterVersion(Connection conn, String nurseUsername) throws SQLException {
+        return Jdbc.queryOne(conn, NURSE_ROSTER_VERSION, nurseVersion(nurseUsername), rs -> rs.getLong(1));
+    }
+
+    private static Jdbc.Binder nurseVersion(String nurseUsername) {
+        return stmt -> {
+            stmt.setString(1, nurseUsername);
+            stmt.setString(2, nurseUsername);
+        };
+    }
+
+    public static List<Patient> findByDoctor(String doctorUsername, String filter) throws SQLException {
+        return Jdbc.query(BY_DOCTOR, filtered(doctorUsername, filter), PatientRepository::map);
+    }
+
+    public static List<Patient> findByDoctor(Connection conn, String doctorUsername, String filter) throws SQLException {
+        return Jdbc.query(conn, BY_DOCTOR, filtered(doctorUsername, filter), PatientRepository::map);
+    }
+
+    public static List<Patient> findForNurse(String nurseUsername, String filter) throws SQLException {
+        return Jdbc.query(FOR_NURSE, filtered(nurseUsername, filter), PatientRepository::map);
+    }
+
+    public static List<Patient> findForNurse(Connection conn, String nurseUsername, String filter) throws SQLException {
+        return Jdbc.query(conn, FOR_NURSE, filtered(nurseUsername, filter), PatientRepository::map);
+    }
+
+    private static Jdbc.Binder filtered(String clinicianUsername, String filter) {
+        String pattern = Jdbc.likePattern(filter);
+        return stmt -> {
+            stmt.setString(1, clinicianUsername);
+            stmt.setString(2, pattern);
+            stmt.setString(3, pattern);
+        };
+    }
+
+    public static String findName(String username) throws SQLException {
+        return Jdbc.queryOne("SELECT p.name FROM users u JOIN patient_info p ON p.user_id = u.id WHERE u.username = ?",
+                stmt -> stmt.setString(1, username), rs -> rs.getString(1));
+    }
+
+    public static Map<String, String> findNames(Collection<String> usernames) throws SQLException {
+        return Jdbc.lookup("SELECT u.username, p.name FROM users u JOIN patient_info p ON p.user_id = u.id " +
+                "WHERE u.username IN (SELECT value FROM json_each(?))", usernames);
+    }
+
+    // The patient's users row must already exist; assignedDoctor is the doctor's username.
+    public static long insert(Connection conn, Patient patient) throws SQLException {
+        return Jdbc.insert(conn, "INSERT INTO patient_info (user_id, name, phone, email, gender, dob, blood_group, " +
+                "assigned_doctor_id, type) " +
+                "SELECT u.id, ?, ?, ?, ?, ?, ?, (SELECT id FROM users WHERE username = ?), ? FROM users u WHERE u.username = ?", stmt -> {
+            stmt.setString(1, patient.getName());
+            stmt.setString(2, patient.getPhone());
+            stmt.setString(3, patient.getEmail());
+            stmt.setString(4, patient.getGender());
+            stmt.setString(5, patient.getDob());
+            stmt.setString(6, patient.getBloodGroup());
+            stmt.setString(7, patient.getAssignedDoctor());
+            stmt.setString(8, patient.getType());
+            stmt.setString(9, patient.getUsername());
+        });
+    }
+
+    public static int updateProfile(Connection conn, Patient patient) throws SQLException {
+        return Jdbc.update(conn, "UPDATE patient_info SET name = ?, phone = ?, email = ?, gender = ?, dob = ?, blood_group = ? " +
+                "WHERE user_id = (SELECT id FROM users WHERE username = ?)", stmt -> {
+            stmt.setString(1, patient.getName());
+            stmt.setString(2, patient.getPhone());
+            stmt.setString(3, patient.getEmail());
+            stmt.setString(4, patient.getGender());
+            stmt.setString(5, patient.getDob());
+            stmt.setString(6, patient.getBloodGroup());
+            stmt.setString(7, patient.getUsername());
+        });
+    }
+
+    public static int assignDoctor(Connection conn, String username, String doctorUsername) throws SQLException {
+        return Jdbc.update(conn, "UPDATE patient_info SET assigned_doctor_id = (SELECT id FROM users WHERE username = ?) " +
+                "WHERE user_id = (SELECT id FROM users WHERE username = ?)", stmt -> {
+            stmt.setString(1, doctorUsername);
+            stmt.setString(2, username);
+        });
+    }
+}
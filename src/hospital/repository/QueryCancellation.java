@@ -0,0 +1,55 @@
+package hospital.repository;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.Callable;
+
+// Lets another thread abort the repository calls a task makes. Statements run inside call() register
+// themselves here, and cancel() interrupts the one that is executing (sqlite3_interrupt on its connection)
+// and fails any that start afterwards.
+public final class QueryCancellation {
+
+    private static final ThreadLocal<QueryCancellation> CURRENT = new ThreadLocal<>();
+
+    private Statement running;
+    private boolean cancelled;
+
+    public <T> T call(Callable<T> task) throws Exception {
+        CURRENT.set(this);
+        try {
+            return task.call();
+        } finally {
+            CURRENT.remove();
+        }
+    }
+
+    public synchronized void cancel() {
+        cancelled = true;
+        if (running != null) {
+            try {
+                running.cancel();
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    static void enter(Statement stmt) throws SQLException {
+        QueryCancellation current = CURRENT.get();
+        if (current == null) return;
+        synchronized (current) {
+            if (current.cancelled) {
+                throw new SQLException("Query cancelled");
+            }
+            current.running = stmt;
+        }
+    }
+
+    static void exit() {
+        QueryCancellation current = CURRENT.get();
+        if (current == null) return;
+        synchronized (current) {
+            current.running = null;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package hospital.repository;
+
+import hospital.util.LatencyTimer;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Per-statement latency for every query issued through the repositories.
+public final class QueryStats {
+
+    private static final int REPORT_LIMIT = Integer.getInteger("hospital.db.queryStatsLimit", 10);
+    private static final Map<String, LatencyTimer> TIMERS = new ConcurrentHashMap<>();
+
+    private QueryStats() {}
+
+    static void record(String sql, long nanos) {
+        TIMERS.computeIfAbsent(sql, k -> new LatencyTimer()).add(nanos);
+    }
+
+    public static String summary() {
+        StringBuilder out = new StringBuilder("queries[statements=" + TIMERS.size() + "]");
+        TIMERS.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<String, LatencyTimer> e) -> e.getValue().getTotalNanos()).reversed())
+                .limit(REPORT_LIMIT)
+                .forEach(e -> out.append(String.format("%n  %s  %s", e.getValue(), e.getKey().replaceAll("\\s+", " "))));
+        return out.toString();
+    }
+}
@@ -0,0 +1,96 @@
+package hospital.repository;
+
+import hospital.model.WorkingHours;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+public final class ScheduleRepository {
+
+    private static final String SELECT = "SELECT h.start_minute, h.end_minute, h.slot_minutes " +
+            "FROM users u JOIN doctor_hours h ON h.doctor_id = u.id WHERE u.username = ?";
+
+    private static final String VERSION = "SELECT COALESCE(v.version, 0) " +
+            "FROM users u LEFT JOIN schedule_version v ON v.doctor_id = u.id WHERE u.username = ?";
+
+    private ScheduleRepository() {}
+
+    private static WorkingHours map(ResultSet rs) throws SQLException {
+        return new WorkingHours(rs.getInt(1), rs.getInt(2), rs.getInt(3));
+    }
+
+    // Doctors who never set their hours get WorkingHours.DEFAULT.
+    public static WorkingHours findHours(String doctorUsername) throws SQLException {
+        WorkingHours hours = Jdbc.queryOne(SELECT, stmt -> stmt.setString(1, doctorUsername), ScheduleRepository::map);
+        return hours != null ? hours : WorkingHours.DEFAULT;
+    }
+
+    public static WorkingHours findHours(Connection conn, String doctorUsername) throws SQLException {
+        WorkingHours hours = Jdbc.queryOne(conn, SELECT, stmt -> stmt.setString(1, doctorUsername), ScheduleRepository::map);
+        return hours != null ? hours : WorkingHours.DEFAULT;
+    }
+
+    // Hours for a batch of doctors in one query, with WorkingHours.DEFAULT for doctors who have none.
+    public static Map<String, WorkingHours> findHours(Collection<String> doctorUsernames) throws SQLException {
+        Map<String, WorkingHours> result = new HashMap<>();
+        for (String doctor : doctorUsernames) {
+            result.put(doctor, WorkingHours.DEFAULT);
+        }
+        if (doctorUsernames.isEmpty()) {
+            return result;
+        }
+        record Row(String doctor, WorkingHours hours) {}
+        for (Row row : Jdbc.query("SELECT u.username, h.start_minute, h.end_minute, h.slot_minutes " +
+                "FROM users u JOIN doctor_hours h ON h.doctor_id = u.id " +
+                "WHERE u.username IN (SELECT value FROM json_each(?))",
+                stmt -> stmt.setString(1, Jdbc.toJsonArray(doctorUsernames)),
+                rs -> new Row(rs.getString(1), new WorkingHours(rs.getInt(2), rs.getInt(3), rs.getInt(4))))) {
+            result.put(row.doctor(), row.hours());
+        }
+        return result;
+    }
+
+    // The doctor's schedule_version stamp, which moves whenever their appointments or hours change.
+    public static long findVersion(String doctorUsername) throws SQLException {
+        Long version = Jdbc.queryOne(VERSION, stmt -> stmt.setString(1, doctorUsername), rs -> rs.getLong(1));
+        return version != null ? version : 0;
+    }
+
+    public static long findVersion(Connection conn, String doctorUsername) throws SQLException {
+        Long version = Jdbc.queryOne(conn, VERSION, stmt -> stmt.setString(1, doctorUsername), rs -> rs.getLong(1));
+        return version != null ? version : 0;
+    }
+
+    public static Map<String, Long> findVersions(Collection<String> doctorUsernames) throws SQLException {
+        Map<String, Long> result = new HashMap<>();
+        for (String doctor : doctorUsernames) {
+            result.put(doctor, 0L);
+        }
+        if (doctorUsernames.isEmpty()) {
+            return result;
+        }
+        record Row(String doctor, long version) {}
+        for (Row row : Jdbc.query("SELECT u.username, v.version " +
+                "FROM users u JOIN schedule_version v ON v.doctor_id = u.id " +
+                "WHERE u.username IN (SELECT value FROM json_each(?))",
+                stmt -> stmt.setString(1, Jdbc.toJsonArray(doctorUsernames)),
+                rs -> new Row(rs.getString(1), rs.getLong(2)))) {
+            result.put(row.doctor(), row.version());
+        }
+        return result;
+    }
+
+    public static int saveHours(Connection conn, String doctorUsername, WorkingHours hours) throws SQLException {
+        return Jdbc.update(conn, "INSERT OR REPLACE INTO doctor_hours (doctor_id, start_minute, end_minute, slot_minutes) " +
+                "SELECT id, ?, ?, ? FROM users WHERE username = ? AND role = 'doctor'", stmt -> {
+            stmt.setInt(1, hours.getStartMinute());
+            stmt.setInt(2, hours.getEndMinute());
+            stmt.setInt(3, hours.getSlotMinutes());
+            stmt.setString(4, doctorUsername);
+        });
+    }
+}
@@ -0,0 +1,213 @@
+package hospital.repository;
+
+import hospital.model.User;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+public final class UserRepository {
+
+    private static final String COLUMNS = "u.id, u.username, u.password, u.role, u.name, u.email";
+
+    static final String BY_ROLE = "SELECT " + COLUMNS + " FROM users u WHERE u.role = ?";
+
+    private static final String NURSES_OF_DOCTOR = "SELECT " + COLUMNS + " FROM users doc " +
+            "JOIN doctor_nurse_assignment d ON d.doctor_id = doc.id " +
+            "JOIN users u ON u.id = d.nurse_id WHERE doc.username = ?";
+
+    private static final String DOCTORS_OF_NURSE = "SELECT " + COLUMNS + " FROM users n " +
+            "JOIN doctor_nurse_assignment d ON d.nurse_id = n.id " +
+            "JOIN users u ON u.id = d.doctor_id WHERE n.username = ?";
+
+    private UserRepository() {}
+
+    private static User map(ResultSet rs) throws SQLException {
+        return new User(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4), rs.getString(5), rs.getString(6));
+    }
+
+    public static User findByUsername(String username) throws SQLException {
+        return Jdbc.queryOne("SELECT " + COLUMNS + " FROM users u WHERE u.username = ?",
+                stmt -> stmt.setString(1, username), UserRepository::map);
+    }
+
+    public static User findByUsername(Connection conn, String username) throws SQLException {
+        return Jdbc.queryOne(conn, "SELECT " + COLUMNS + " FROM users u WHERE u.username = ?",
+                stmt -> stmt.setString(1, username), UserRepository::map);
+    }
+
+    public static User findByCredentials(String username, String password) throws SQLException {
+        return Jdbc.queryOne("SELECT " + COLUMNS + " FROM users u WHERE u.username = ? AND u.password = ?", stmt -> {
+            stmt.setString(1, username);
+            stmt.setString(2, password);
+        }, UserRepository::map);
+    }
+
+    public static User findByName(String name) throws SQLException {
+        return Jdbc.queryOne("SELECT " + COLUMNS + " FROM users u WHERE u.name = ?",
+                stmt -> stmt.setString(1, name), UserRepository::map);
+    }
+
+    // Roles are stored lower-case (enforced by a CHECK constraint), so lookups compare the bare column
+    // and can be answered from idx_users_role.
+    public static String normalizeRole(String role) {
+        return role != null ? role.trim().toLowerCase(Locale.ROOT) : null;
+    }
+
+    public static List<User> findByRole(String role) throws SQLException {
+        return Jdbc.query(BY_ROLE, stmt -> stmt.setString(1, normalizeRole(role)), UserRepository::map);
+    }
+
+    // One page of users in username order, starting after afterUsername ("" for the first page). A non-blank
+    // text goes through the user_search FTS index, so every word must prefix-match the username or the name.
+    // CROSS JOIN keeps the FTS match as the outer loop; otherwise a role filter lets the planner walk
+    // idx_users_role and probe the FTS index once per user.
+    // Patients are returned with the name from their patient_info row, which is what the rest of the UI shows.
+    public static List<User> search(String text, String role, String afterUsername, int limit) throws SQLException {
+        String match = Jdbc.matchPattern(text);
+        StringBuilder sql = new StringBuilder("SELECT u.id, u.username, u.password, u.role, " +
+                "CASE WHEN u.role = 'patient' THEN COALESCE(p.name, u.name) ELSE u.name END, u.email FROM ");
+        sql.append(match != null ? "user_search CROSS JOIN users u ON u.id = user_search.rowid " : "users u ");
+        sql.append("LEFT JOIN patient_info p ON p.user_id = u.id WHERE u.username > ?");
+        if (match != null) {
+            sql.append(" AND user_search MATCH ?");
+        }
+        if (role != null) {
+            sql.append(" AND u.role = ?");
+        }
+        sql.append(" ORDER BY u.username LIMIT ?");
+
+        return Jdbc.query(sql.toString(), stmt -> {
+            int i = 1;
+            stmt.setString(i++, afterUsername);
+            if (match != null) {
+                stmt.setString(i++, match);
+            }
+            if (role != null) {
+                stmt.setString(i++, normalizeRole(role));
+            }
+            stmt.setInt(i, limit);
+        }, UserRepository::map);
+    }
+
+    public static Map<String, String> findNames(Collection<String> usernames) throws SQLException {
+        return Jdbc.lookup("SELECT username, name FROM users " +
+                "WHERE username IN (SELECT value FROM json_each(?)) AND name IS NOT NULL", usernames);
+    }
+
+    // Accounts for a batch of usernames without their passwords. Patients carry the name from patient_info,
+    // as in search().
+    public static List<User> findIdentities(Collection<String> usernames) throws SQLException {
+        if (usernames.isEmpty()) {
+            return List.of();
+        }
+        return Jdbc.query("SELECT u.id, u.username, NULL, u.role, " +
+                "CASE WHEN u.role = 'patient' THEN COALESCE(p.name, u.name) ELSE u.name END, u.email FROM users u " +
+                "LEFT JOIN patient_info p ON p.user_id = u.id WHERE u.username IN (SELECT value FROM json_each(?))",
+                stmt -> stmt.setString(1, Jdbc.toJsonArray(usernames)), UserRepository::map);
+    }
+
+    public static List<User> findNursesOfDoctor(String doctorUsername) throws SQLException {
+        return Jdbc.query(NURSES_OF_DOCTOR, stmt -> stmt.setString(1, doctorUsername), UserRepository::map);
+    }
+
+    public static List<User> findNursesOfDoctor(Connection conn, String doctorUsername) throws SQLException {
+        return Jdbc.query(conn, NURSES_OF_DOCTOR, stmt -> stmt.setString(1, doctorUsername), UserRepository::map);
+    }
+
+    public static List<User> findDoctorsOfNurse(String nurseUsername) throws SQLException {
+        return Jdbc.query(DOCTORS_OF_NURSE, stmt -> stmt.setString(1, nurseUsername), UserRepository::map);
+    }
+
+    public static List<User> findDoctorsOfNurse(Connection conn, String nurseUsername) throws SQLException {
+        return Jdbc.query(conn, DOCTORS_OF_NURSE, stmt -> stmt.setString(1, nurseUsername), UserRepository::map);
+    }
+
+    // nurse username -> doctor username for every assigned nurse.
+    public static Map<String, String> findNurseAssignments() throws SQLException {
+        Map<String, String> assignments = new LinkedHashMap<>();
+        for (String[] row : Jdbc.query("SELECT n.username, doc.username FROM doctor_nurse_assignment d " +
+                "JOIN users n ON n.id = d.nurse_id JOIN users doc ON doc.id = d.doctor_id",
+                Jdbc.NO_PARAMS, rs -> new String[] { rs.getString(1), rs.getString(2) })) {
+            assignments.putIfAbsent(row[0], row[1]);
+        }
+        return assignments;
+    }
+
+    // Bumped by triggers on every change to doctors, nurses or their assignments (schema version 9).
+    public static long findStaffVersion() throws SQLException {
+        return Jdbc.queryOne("SELECT version FROM staff_version WHERE id = 1", Jdbc.NO_PARAMS, rs -> rs.getLong(1));
+    }
+
+    public static boolean exists(Connection conn, String username) throws SQLException {
+        return Jdbc.queryOne(conn, "SELECT 1 FROM users WHERE username = ?",
+                stmt -> stmt.setString(1, username), rs -> Boolean.TRUE) != null;
+    }
+
+    public static int countNursesOfDoctor(Connection conn, String doctorUsername) throws SQLException {
+        return Jdbc.queryOne(conn, "SELECT COUNT(*) FROM doctor_nurse_assignment d " +
+                "JOIN users doc ON doc.id = d.doctor_id WHERE doc.username = ?",
+                stmt -> stmt.setString(1, doctorUsername), rs -> rs.getInt(1));
+    }
+
+    public static long insert(Connection conn, User user) throws SQLException {
+        return Jdbc.insert(conn, "INSERT INTO users (username, password, role, name, email) VALUES (?, ?, ?, ?, ?)", stmt -> {
+            stmt.setString(1, user.getUsername());
+            stmt.setString(2, user.getPassword());
+            stmt.setString(3, normalizeRole(user.getRole()));
+            stmt.setString(4, user.getName());
+            stmt.setString(5, user.getEmail());
+        });
+    }
+
+    // Other tables reference users by id, so a username change is a single-row update.
+    public static int updateAccount(Connection conn, String oldUsername, String newUsername, String name,
+                                    String email, String password) throws SQLException {
+        return Jdbc.update(conn, "UPDATE users SET username = ?, email = ?, name = ?, password = ? WHERE username = ?", stmt -> {
+            stmt.setString(1, newUsername);
+            stmt.setString(2, email);
+            stmt.setString(3, name);
+            stmt.setString(4, password);
+            stmt.setString(5, oldUsername);
+        });
+    }
+
+    public static int updateProfile(Connection conn, String oldUsername, String newUsername, String name,
+                                    String email) throws SQLException {
+        return Jdbc.update(conn, "UPDATE users SET username = ?, email = ?, name = ? WHERE username = ?", stmt -> {
+            stmt.setString(1, newUsername);
+            stmt.setString(2, email);
+            stmt.setString(3, name);
+            stmt.setString(4, oldUsername);
+        });
+    }
+
+    public static int delete(Connection conn, String username) throws SQLException {
+        return Jdbc.update(conn, "DELETE FROM users WHERE username = ?", stmt -> stmt.setString(1, username));
+    }
+
+    // A nurse works under one doctor at a time; any previous assignment is replaced.
+    public static int assignNurse(Connection conn, String doctorUsername, String nurseUsername) throws SQLException {
+        Jdbc.update(conn, "DELETE FROM doctor_nurse_assignment WHERE nurse_id = (SELECT id FROM users WHERE username = ?)",
+                stmt -> stmt.setString(1, nurseUsername));
+        return Jdbc.update(conn, "INSERT INTO doctor_nurse_assignment (doctor_id, nurse_id) " +
+                "SELECT doc.id, n.id FROM users doc, users n WHERE doc.username = ? AND n.username = ?", stmt -> {
+            stmt.setString(1, doctorUsername);
+            stmt.setString(2, nurseUsername);
+        });
+    }
+
+    public static int removeNurse(Connection conn, String doctorUsername, String nurseUsername) throws SQLException {
+        return Jdbc.update(conn, "DELETE FROM doctor_nurse_assignment " +
+                "WHERE nurse_id = (SELECT id FROM users WHERE username = ?) " +
+                "AND doctor_id = (SELECT id FROM users WHERE username = ?)", stmt -> {
+            stmt.setString(1, nurseUsername);
+            stmt.setString(2, doctorUsername);
+        });
+    }
+}
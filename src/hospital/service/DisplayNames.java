@@ -0,0 +1,133 @@
+package hospital.service;
+
+import hospital.model.User;
+import hospital.repository.UserRepository;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+// username -> the name the UI shows for that account (User.getDisplayName(), with a patient's name taken from
+// patient_info). The most recently used MAX_ENTRIES are kept, so a name already seen is a hash probe; the
+// batch form looks up every miss in one query. Usernames that match no account are not cached.
+// The write paths that change a name or remove an account call invalidate() once the write has committed; a
+// lookup that was already reading the database at that point returns what it read but does not cache it.
+public final class DisplayNames {
+
+    private static final int MAX_ENTRIES = 4_096;
+
+    private static final Map<String, String> NAMES = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            if (size() > MAX_ENTRIES) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    private static final LongAdder hits = new LongAdder();
+    private static final LongAdder misses = new LongAdder();
+    private static final LongAdder evictions = new LongAdder();
+    private static long invalidations;
+
+    private DisplayNames() {}
+
+    // The display name, or the username itself if there is no such account.
+    public static String of(String username) throws SQLException {
+        return of(List.of(username)).getOrDefault(username, username);
+    }
+
+    // Display names for every username that has an account.
+    public static Map<String, String> of(Collection<String> usernames) throws SQLException {
+        Map<String, String> result = new HashMap<>();
+        Set<String> missing = new LinkedHashSet<>();
+        long seen;
+        synchronized (NAMES) {
+            seen = invalidations;
+            for (String username : usernames) {
+                String name = NAMES.get(username);
+                if (name != null) {
+                    result.put(username, name);
+                } else {
+                    missing.add(username);
+                }
+            }
+        }
+        hits.add(result.size());
+        misses.add(missing.size());
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        List<User> users = UserRepository.findIdentities(missing);
+        synchronized (NAMES) {
+            for (User user : users) {
+                if (seen == invalidations) {
+                    NAMES.put(user.getUsername(), user.getDisplayName());
+                }
+                result.put(user.getUsername(), user.getDisplayName());
+            }
+        }
+        return result;
+    }
+
+    public static void invalidate(String username) {
+        synchronized (NAMES) {
+            invalidations++;
+            NAMES.remove(username);
+        }
+    }
+
+    public static void invalidateAll() {
+        synchronized (NAMES) {
+            invalidations++;
+            NAMES.clear();
+        }
+    }
+
+    public static Stats getStats() {
+        int size;
+        synchronized (NAMES) {
+            size = NAMES.size();
+        }
+        return new Stats(size, hits.sum(), misses.sum(), evictions.sum());
+    }
+
+    public static class Stats {
+        private final int size;
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+
+        Stats(int size, long hits, long misses, long evictions) {
+            this.size = size;
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+        }
+
+        public int getSize() { return size; }
+        public long getHits() { return hits; }
+        public long getMisses() { return misses; }
+        public long getEvictions() { return evictions; }
+
+        public double getHitRatio() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0 : (double) hits / lookups;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("names[size=%d max=%d hits=%d misses=%d evictions=%d hitRatio=%.1f%%]",
+                    size, MAX_ENTRIES, hits, misses, evictions, getHitRatio() * 100);
+        }
+    }
+}
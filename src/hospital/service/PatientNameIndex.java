@@ -0,0 +1,178 @@
+package hospital.service;
+
+import hospital.model.Patient;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+// Immutable trigram index over the names in one roster. Names are lower-cased and every word is prefixed with
+// two boundary characters, so "John Smith" is indexed as "\1\1john\1\1smith". Queries of three or more
+// characters are substring matches: the posting lists of their trigrams are intersected and each candidate is
+// confirmed against the name. One- and two-character queries become a single boundary-padded trigram, which
+// makes them word-prefix matches. Postings are kept in one int array addressed through the sorted gram table.
+public final class PatientNameIndex {
+
+    private static final char BOUNDARY = 1;
+
+    private final Patient[] patients;
+    private final String[] keys;
+    private final long[] grams;
+    private final int[] offsets;
+    private final int[] postings;
+
+    public PatientNameIndex(Collection<Patient> roster) {
+        // Sorting on the normalized key gives case-insensitive name order without re-folding case per comparison.
+        record Entry(String key, Patient patient) {}
+        Entry[] entries = new Entry[roster.size()];
+        int n = 0;
+        for (Patient patient : roster) {
+            entries[n++] = new Entry(key(patient.getName()), patient);
+        }
+        Arrays.sort(entries, Comparator.comparing(Entry::key));
+
+        patients = new Patient[entries.length];
+        keys = new String[entries.length];
+        int[][] slots = new int[patients.length][];
+        long[][] keyGrams = new long[patients.length][];
+        int total = 0;
+        for (int i = 0; i < patients.length; i++) {
+            patients[i] = entries[i].patient();
+            keys[i] = entries[i].key();
+            keyGrams[i] = grams(keys[i]);
+            total += keyGrams[i].length;
+        }
+
+        long[] all = new long[total];
+        int filled = 0;
+        for (long[] g : keyGrams) {
+            System.arraycopy(g, 0, all, filled, g.length);
+            filled += g.length;
+        }
+        grams = distinct(all);
+
+        offsets = new int[grams.length + 1];
+        for (int i = 0; i < keyGrams.length; i++) {
+            slots[i] = new int[keyGrams[i].length];
+            for (int g = 0; g < keyGrams[i].length; g++) {
+                slots[i][g] = Arrays.binarySearch(grams, keyGrams[i][g]);
+                offsets[slots[i][g] + 1]++;
+            }
+        }
+        for (int g = 0; g < grams.length; g++) {
+            offsets[g + 1] += offsets[g];
+        }
+
+        postings = new int[total];
+        int[] next = Arrays.copyOf(offsets, grams.length);
+        for (int i = 0; i < slots.length; i++) {
+            for (int slot : slots[i]) {
+                postings[next[slot]++] = i;
+            }
+        }
+    }
+
+    // Matches in name order; a blank query returns the whole roster.
+    public List<Patient> search(String text) {
+        String query = query(text);
+        if (query == null) {
+            return patients();
+        }
+
+        long[] needed = grams(query);
+        int[] from = new int[needed.length];
+        int[] to = new int[needed.length];
+        int shortest = 0;
+        for (int g = 0; g < needed.length; g++) {
+            int slot = Arrays.binarySearch(grams, needed[g]);
+            if (slot < 0) {
+                return List.of();
+            }
+            from[g] = offsets[slot];
+            to[g] = offsets[slot + 1];
+            if (to[g] - from[g] < to[shortest] - from[shortest]) {
+                shortest = g;
+            }
+        }
+
+        List<Patient> matches = new ArrayList<>();
+        candidates:
+        for (int p = from[shortest]; p < to[shortest]; p++) {
+            int candidate = postings[p];
+            for (int g = 0; g < needed.length; g++) {
+                if (g != shortest && Arrays.binarySearch(postings, from[g], to[g], candidate) < 0) {
+                    continue candidates;
+                }
+            }
+            if (keys[candidate].contains(query)) {
+                matches.add(patients[candidate]);
+            }
+        }
+        return matches;
+    }
+
+    public List<Patient> patients() {
+        return Collections.unmodifiableList(Arrays.asList(patients));
+    }
+
+    public int size() {
+        return patients.length;
+    }
+
+    // Approximate heap held by the index itself, not counting the Patient objects it points to.
+    public long estimatedBytes() {
+        long bytes = 16L + 8L * grams.length + 16L + 4L * offsets.length + 16L + 4L * postings.length
+                + 2 * (16L + 4L * patients.length);
+        for (String key : keys) {
+            bytes += 24 + 16 + key.length();
+        }
+        return bytes;
+    }
+
+    private static String key(String name) {
+        String words = words(name);
+        return words == null ? "" : "" + BOUNDARY + BOUNDARY + words;
+    }
+
+    private static String query(String text) {
+        String words = words(text);
+        if (words == null) {
+            return null;
+        }
+        return words.length() >= 3 ? words : String.valueOf(BOUNDARY).repeat(3 - words.length()) + words;
+    }
+
+    private static String words(String text) {
+        if (text == null || text.isBlank()) {
+            return null;
+        }
+        return String.join("" + BOUNDARY + BOUNDARY, text.trim().toLowerCase(Locale.ROOT).split("\\s+"));
+    }
+
+    // Distinct trigrams of s, each packed as three UTF-16 units into one long, in ascending order.
+    private static long[] grams(String s) {
+        if (s.length() < 3) {
+            return new long[0];
+        }
+        long[] result = new long[s.length() - 2];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+        }
+        return distinct(result);
+    }
+
+    private static long[] distinct(long[] values) {
+        Arrays.sort(values);
+        int distinct = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (i == 0 || values[i] != values[i - 1]) {
+                values[distinct++] = values[i];
+            }
+        }
+        return Arrays.copyOf(values, distinct);
+    }
+}
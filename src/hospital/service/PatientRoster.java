@@ -0,0 +1,120 @@
+package hospital.service;
+
+import hospital.model.Patient;
+import hospital.repository.PatientRepository;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+// The patients a doctor or nurse looks after, held in memory for the search boxes on their dashboards.
+// A roster is stamped with its clinician's roster_version, which triggers only move when something shown in
+// that roster changes, so an edit reloads the rosters it appears in and no others. Opening or refreshing a
+// dashboard compares the stamp inside its read transaction; searches typed into the box compare it at most
+// once per CHECK_INTERVAL and otherwise stay in memory, so a change made on another workstation shows up
+// within that interval. Writes on this workstation call recheck() so the next search compares at once.
+public final class PatientRoster {
+
+    private static final long CHECK_INTERVAL = TimeUnit.SECONDS.toNanos(2);
+    private static final ConcurrentMap<String, PatientRoster> ROSTERS = new ConcurrentHashMap<>();
+
+    private record Snapshot(long version, PatientNameIndex index) {}
+
+    private final String clinicianUsername;
+    private final boolean nurse;
+    private volatile Snapshot snapshot;
+    private volatile long checkedAt;
+    private volatile boolean checkDue = true;
+
+    private PatientRoster(String clinicianUsername, boolean nurse) {
+        this.clinicianUsername = clinicianUsername;
+        this.nurse = nurse;
+    }
+
+    public static PatientRoster forDoctor(String doctorUsername) {
+        return ROSTERS.computeIfAbsent("doctor:" + doctorUsername, key -> new PatientRoster(doctorUsername, false));
+    }
+
+    public static PatientRoster forNurse(String nurseUsername) {
+        return ROSTERS.computeIfAbsent("nurse:" + nurseUsername, key -> new PatientRoster(nurseUsername, true));
+    }
+
+    public List<Patient> search(String text) throws SQLException {
+        Snapshot current = snapshot;
+        if (current == null || checkDue || System.nanoTime() - checkedAt >= CHECK_INTERVAL) {
+            current = check(null);
+        }
+        return current.index().search(text);
+    }
+
+    // Always compares the stamp, read on conn, e.g. inside a dashboard's read transaction.
+    public List<Patient> search(Connection conn, String text) throws SQLException {
+        return check(conn).index().search(text);
+    }
+
+    // checkDue is cleared before the stamp is read, so a recheck() that arrives during the read is not lost.
+    private Snapshot check(Connection conn) throws SQLException {
+        checkDue = false;
+        long version;
+        if (nurse) {
+            version = conn != null ? PatientRepository.findNurseRosterVersion(conn, clinicianUsername)
+                    : PatientRepository.findNurseRosterVersion(clinicianUsername);
+        } else {
+            version = conn != null ? PatientRepository.findDoctorRosterVersion(conn, clinicianUsername)
+                    : PatientRepository.findDoctorRosterVersion(clinicianUsername);
+        }
+        checkedAt = System.nanoTime();
+        Snapshot current = snapshot;
+        return current != null && current.version() == version ? current : load(conn, version);
+    }
+
+    // conn may be null, in which case each query opens its own connection. The version was read before the
+    // rows, so a change committed while they are read shows up as a newer version on the next check.
+    private synchronized Snapshot load(Connection conn, long version) throws SQLException {
+        if (snapshot == null || snapshot.version() != version) {
+            List<Patient> patients;
+            if (nurse) {
+                patients = conn != null ? PatientRepository.findForNurse(conn, clinicianUsername, null)
+                        : PatientRepository.findForNurse(clinicianUsername, null);
+            } else {
+                patients = conn != null ? PatientRepository.findByDoctor(conn, clinicianUsername, null)
+                        : PatientRepository.findByDoctor(clinicianUsername, null);
+            }
+            snapshot = new Snapshot(version, new PatientNameIndex(patients));
+        }
+        return snapshot;
+    }
+
+    // Call once a write that can change a roster has committed. Every roster compares its stamp on its next
+    // search; only the ones the write touched reload.
+    public static void recheck() {
+        for (PatientRoster roster : ROSTERS.values()) {
+            roster.checkDue = true;
+        }
+    }
+
+    // Drops every loaded roster, e.g. after the database has been reset, so each reloads on its next search.
+    public static void invalidateAll() {
+        for (PatientRoster roster : ROSTERS.values()) {
+            roster.snapshot = null;
+        }
+    }
+
+    public static String summary() {
+        int loaded = 0;
+        long patients = 0;
+        long bytes = 0;
+        for (PatientRoster roster : ROSTERS.values()) {
+            Snapshot current = roster.snapshot;
+            if (current != null) {
+                loaded++;
+                patients += current.index().size();
+                bytes += current.index().estimatedBytes();
+            }
+        }
+        return String.format("rosters[loaded=%d patients=%d indexBytes=%d]", loaded, patients, bytes);
+    }
+}
@@ -0,0 +1,14 @@
+package hospital.service;
+
+import java.sql.SQLException;
+
+// Thrown from inside a write when a booking would overlap another appointment or fall outside working hours.
+// It extends SQLException so it passes through WriteQueue mutations and rolls back their savepoint.
+public class SchedulingConflictException extends SQLException {
+
+    private static final long serialVersionUID = 1L;
+
+    public SchedulingConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,484 @@
+package hospital.service;
+
+import hospital.model.Appointment;
+import hospital.model.Recurrence;
+import hospital.model.WorkingHours;
+import hospital.model.WriteQueue;
+import hospital.repository.AppointmentRepository;
+import hospital.repository.ScheduleRepository;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+
+// Appointment slots per doctor and day. Each day a doctor has bookings on is an interval index: a TreeMap from
+// start minute to end minute over non-overlapping intervals, so an overlap check is one lowerEntry() lookup.
+// Beside it each day keeps a bitmap of which slots on the doctor's grid are still open, so finding the first
+// open slot is a scan of one to three longs. Days are read from the database on first use (one seek into
+// idx_appointment_doctor_start, or one query for a whole search horizon) and the most recently used
+// MAX_CACHED_DAYS are kept, so the amount of history stored does not affect booking or lookups.
+// Each cached day carries the doctor's schedule_version stamp, and lookups read the current stamp first (one
+// query for all the doctors a search covers), so days changed from another workstation are read again.
+// Bookings and cancellations go through book() and cancel() (or the *Series variants), which re-read the day
+// inside the write transaction and stamp it afterwards, so a workstation's own writes stay cached. Writes hold
+// SQLite's write lock from BEGIN IMMEDIATE, so no other workstation can book between that re-read and the insert.
+public final class SchedulingEngine {
+
+    private static final int MAX_CACHED_DAYS = 32_768;
+    private static final int SQLITE_CONSTRAINT = 19;
+
+    public record Slot(String doctorUsername, LocalDateTime start) {}
+
+    private record DayKey(String doctorUsername, LocalDate day) {}
+
+    private static final Map<DayKey, DayBook> DAYS = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<DayKey, DayBook> eldest) {
+            return size() > MAX_CACHED_DAYS;
+        }
+    };
+
+    // Intervals that touch or overlap are merged as they are added (rows from before the engine existed may
+    // overlap), which keeps the map disjoint and the single-lookup overlap check exact. Bit i of open is set
+    // while the i-th slot of the day does not overlap any booking.
+    private static final class DayBook {
+        final WorkingHours hours;
+        final TreeMap<Integer, Integer> booked = new TreeMap<>();
+        final int slots;
+        final long[] open;
+        volatile long version;
+
+        DayBook(WorkingHours hours, List<Appointment> appointments, long version) {
+            this.hours = hours;
+            this.version = version;
+            this.slots = Math.max(0, (hours.getEndMinute() - hours.getStartMinute()) / hours.getSlotMinutes());
+            this.open = new long[(slots + 63) / 64];
+            for (int i = 0; i < slots; i++) {
+                open[i >>> 6] |= 1L << i;
+            }
+            for (Appointment appointment : appointments) {
+                int minute = appointment.getStart().toLocalTime().toSecondOfDay() / 60;
+                add(minute, minute + appointment.getDurationMinutes());
+            }
+        }
+
+        int slotStart(int i) {
+            return hours.getStartMinute() + i * hours.getSlotMinutes();
+        }
+
+        synchronized boolean overlaps(int start, int end) {
+            Map.Entry<Integer, Integer> before = booked.lowerEntry(end);
+            return before != null && before.getValue() > start;
+        }
+
+        synchronized void add(int start, int end) {
+            for (int i = 0; i < slots; i++) {
+                if (slotStart(i) < end && slotStart(i) + hours.getSlotMinutes() > start) {
+                    open[i >>> 6] &= ~(1L << i);
+                }
+            }
+
+            Map.Entry<Integer, Integer> before = booked.floorEntry(start);
+            if (before != null && before.getValue() >= start) {
+                start = before.getKey();
+                end = Math.max(end, before.getValue());
+            }
+            Map.Entry<Integer, Integer> after;
+            while ((after = booked.ceilingEntry(start)) != null && after.getKey() <= end) {
+                end = Math.max(end, after.getValue());
+                booked.remove(after.getKey());
+            }
+            booked.put(start, end);
+        }
+
+        // Index of the first open slot starting at or after notBefore, or -1.
+        synchronized int firstOpen(int notBefore) {
+            int from = notBefore <= hours.getStartMinute() ? 0
+                    : (notBefore - hours.getStartMinute() + hours.getSlotMinutes() - 1) / hours.getSlotMinutes();
+            for (int w = from >>> 6; w < open.length; w++) {
+                long bits = w == from >>> 6 ? open[w] & (-1L << from) : open[w];
+                if (bits != 0) {
+                    return w * 64 + Long.numberOfTrailingZeros(bits);
+                }
+            }
+            return -1;
+        }
+
+        synchronized List<LocalTime> free(int notBefore) {
+            List<LocalTime> result = new ArrayList<>();
+            for (int i = firstOpen(notBefore); i >= 0 && i < slots; i++) {
+                if ((open[i >>> 6] & (1L << i)) != 0) {
+                    result.add(LocalTime.ofSecondOfDay(slotStart(i) * 60L));
+                }
+            }
+            return result;
+        }
+    }
+
+    private SchedulingEngine() {}
+
+    // Open slots on the doctor's grid for one day, skipping any that have already started.
+    public static List<LocalTime> freeSlots(String doctorUsername, LocalDate day) throws SQLException {
+        LocalDateTime now = LocalDateTime.now();
+        if (day.isBefore(now.toLocalDate())) {
+            return List.of();
+        }
+        return day(doctorUsername, day).free(notBefore(day, now));
+    }
+
+    // The earliest open slot with any of the doctors between now and horizonDays ahead, or null. Days are
+    // searched in order and a tie within a day goes to the doctor listed first. Days missing from the cache
+    // are loaded for the whole horizon in one query, so a warm search only reads the bitmaps.
+    public static Slot findEarliest(List<String> doctorUsernames, int horizonDays) throws SQLException {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDate today = now.toLocalDate();
+        Map<String, Long> versions = preload(doctorUsernames, today, horizonDays);
+
+        for (int d = 0; d < horizonDays; d++) {
+            LocalDate day = today.plusDays(d);
+            int notBefore = notBefore(day, now);
+            Slot best = null;
+            int bestMinute = Integer.MAX_VALUE;
+            for (String doctor : doctorUsernames) {
+                DayBook book = day(doctor, day, versions.get(doctor));
+                int slot = book.firstOpen(notBefore);
+                if (slot >= 0 && book.slotStart(slot) < bestMinute) {
+                    bestMinute = book.slotStart(slot);
+                    best = new Slot(doctor, day.atTime(LocalTime.ofSecondOfDay(bestMinute * 60L)));
+                }
+            }
+            if (best != null) {
+                return best;
+            }
+        }
+        return null;
+    }
+
+    public static CompletableFuture<Long> book(String doctorUsername, String patientUsername, LocalDate day, LocalTime start) {
+        return WriteQueue.submit(conn -> reserve(conn, doctorUsername, patientUsername, day, start))
+                .whenComplete((id, e) -> invalidateIfFailed(e, doctorUsername, day));
+    }
+
+    // For use inside a write. The day is re-read on the writer's connection, so bookings made by other
+    // processes since it was cached are seen; the interval is added before commit, and book() drops the
+    // day again if the transaction then fails.
+    public static long reserve(Connection conn, String doctorUsername, String patientUsername, LocalDate day,
+                               LocalTime start) throws SQLException {
+        DayBook book = reload(conn, doctorUsername, day);
+        checkSlot(book.hours, day.atTime(start), book.hours.getSlotMinutes(), LocalDateTime.now());
+
+        int from = start.toSecondOfDay() / 60;
+        int to = from + book.hours.getSlotMinutes();
+        if (book.overlaps(from, to)) {
+            throw new SchedulingConflictException("The doctor is already booked at " + format(start) + " on " + day + ".");
+        }
+
+        long id;
+        try {
+            id = AppointmentRepository.insert(conn, new Appointment(doctorUsername, patientUsername, day.atTime(start),
+                    book.hours.getSlotMinutes()));
+        } catch (SQLException e) {
+            throw slotTaken(e, "The doctor was just booked at " + format(start) + " on " + day + ".");
+        }
+        book.add(from, to);
+        book.version = ScheduleRepository.findVersion(conn, doctorUsername);
+        return id;
+    }
+
+    // Merged intervals cannot give back just the part one appointment covered, so the day is rebuilt from
+    // the database after the delete; other days are untouched.
+    // An appointment that has already started is part of the patient's record and is not cancelled. Returns 0
+    // if the appointment was already gone.
+    public static CompletableFuture<Integer> cancel(String doctorUsername, String patientUsername, LocalDateTime start) {
+        LocalDate day = start.toLocalDate();
+        return WriteQueue.submit(conn -> {
+            if (start.isBefore(LocalDateTime.now())) {
+                throw new SchedulingConflictException("The appointment at " + format(start.toLocalTime()) + " on "
+                        + day + " has already taken place and cannot be cancelled.");
+            }
+            int rows = AppointmentRepository.delete(conn, doctorUsername, patientUsername, start);
+            reload(conn, doctorUsername, day);
+            return rows;
+        }).whenComplete((rows, e) -> invalidateIfFailed(e, doctorUsername, day));
+    }
+
+    // A recurring series is booked in one write: every day it lands on is read with one range query on the
+    // writer's connection, the whole set is checked, and the series row and all occurrences are inserted only
+    // if none conflict. A conflict names every date that clashes so the patient can pick another time at once.
+    public static CompletableFuture<Long> bookSeries(String doctorUsername, String patientUsername, LocalDateTime first,
+                                                     Recurrence recurrence) {
+        List<LocalDateTime> starts = new ArrayList<>(recurrence.getCount());
+        for (LocalDateTime start : recurrence.occurrences(first)) {
+            starts.add(start);
+        }
+        return WriteQueue.submit(conn -> {
+            WorkingHours hours = ScheduleRepository.findHours(conn, doctorUsername);
+            Map<LocalDate, DayBook> books = reload(conn, doctorUsername, hours, starts, 0);
+            checkAll(books, hours, starts, hours.getSlotMinutes(), LocalDateTime.now());
+
+            long seriesId = AppointmentRepository.insertSeries(conn,
+                    new Appointment(doctorUsername, patientUsername, first, hours.getSlotMinutes()), recurrence.toRule());
+            try {
+                AppointmentRepository.insertOccurrences(conn, seriesId, starts);
+            } catch (SQLException e) {
+                throw slotTaken(e, "One of the dates was just booked at " + format(first.toLocalTime()) + ".");
+            }
+            addAll(conn, doctorUsername, books, starts, hours.getSlotMinutes());
+            return seriesId;
+        }).whenComplete((id, e) -> invalidateIfFailed(e, doctorUsername));
+    }
+
+    // Moves the occurrences still ahead to another time of day. They are checked as a set against everything
+    // but the series itself, then rewritten with one UPDATE.
+    public static CompletableFuture<Integer> moveSeries(String doctorUsername, long seriesId, LocalTime time) {
+        LocalDateTime now = LocalDateTime.now();
+        return WriteQueue.submit(conn -> {
+            List<Appointment> ahead = AppointmentRepository.findSeriesFrom(conn, seriesId, now);
+            if (ahead.isEmpty()) return 0;
+
+            int duration = ahead.get(0).getDurationMinutes();
+            List<LocalDateTime> starts = new ArrayList<>(ahead.size());
+            for (Appointment appointment : ahead) {
+                starts.add(appointment.getStart().toLocalDate().atTime(time));
+            }
+            WorkingHours hours = ScheduleRepository.findHours(conn, doctorUsername);
+            Map<LocalDate, DayBook> books = reload(conn, doctorUsername, hours, starts, seriesId);
+            checkAll(books, hours, starts, duration, now);
+
+            int rows;
+            try {
+                rows = AppointmentRepository.moveSeries(conn, seriesId, now, time);
+            } catch (SQLException e) {
+                throw slotTaken(e, "One of the dates was just booked at " + format(time) + ".");
+            }
+            addAll(conn, doctorUsername, books, starts, duration);
+            return rows;
+        }).whenComplete((rows, e) -> invalidateIfFailed(e, doctorUsername));
+    }
+
+    // Cancels the occurrences still ahead with one DELETE; ones already past stay in the patient's record.
+    public static CompletableFuture<Integer> cancelSeries(String doctorUsername, long seriesId) {
+        LocalDateTime now = LocalDateTime.now();
+        return WriteQueue.submit(conn -> {
+            List<Appointment> ahead = AppointmentRepository.findSeriesFrom(conn, seriesId, now);
+            if (ahead.isEmpty()) return 0;
+
+            int rows = AppointmentRepository.deleteSeries(conn, seriesId, now);
+            List<LocalDateTime> starts = new ArrayList<>(ahead.size());
+            for (Appointment appointment : ahead) {
+                starts.add(appointment.getStart());
+            }
+            WorkingHours hours = ScheduleRepository.findHours(conn, doctorUsername);
+            for (Map.Entry<LocalDate, DayBook> entry : reload(conn, doctorUsername, hours, starts, 0).entrySet()) {
+                cache(new DayKey(doctorUsername, entry.getKey()), entry.getValue());
+            }
+            return rows;
+        }).whenComplete((rows, e) -> invalidateIfFailed(e, doctorUsername));
+    }
+
+    public static void invalidate(String doctorUsername, LocalDate day) {
+        synchronized (DAYS) {
+            DAYS.remove(new DayKey(doctorUsername, day));
+        }
+    }
+
+    public static void invalidateDoctor(String doctorUsername) {
+        synchronized (DAYS) {
+            DAYS.keySet().removeIf(key -> key.doctorUsername().equals(doctorUsername));
+        }
+    }
+
+    // Call after deletes that cascade to appointments.
+    public static void invalidateAll() {
+        synchronized (DAYS) {
+            DAYS.clear();
+        }
+    }
+
+    public static String format(LocalTime time) {
+        return Appointment.TIME_FORMAT.format(time);
+    }
+
+    private static void invalidateIfFailed(Throwable error, String doctorUsername, LocalDate day) {
+        if (error != null) {
+            invalidate(doctorUsername, day);
+        }
+    }
+
+    private static void invalidateIfFailed(Throwable error, String doctorUsername) {
+        if (error != null) {
+            invalidateDoctor(doctorUsername);
+        }
+    }
+
+    // A booking has to start on the doctor's slot grid, inside their working hours and not in the past. The
+    // booking screen only offers such slots, but other callers and other workstations go through here too.
+    private static void checkSlot(WorkingHours hours, LocalDateTime start, int duration, LocalDateTime now)
+            throws SQLException {
+        LocalTime time = start.toLocalTime();
+        int from = time.toSecondOfDay() / 60;
+        if (from < hours.getStartMinute() || from + duration > hours.getEndMinute()) {
+            throw new SchedulingConflictException(format(time) + " is outside the doctor's working hours.");
+        }
+        if (time.getSecond() != 0 || time.getNano() != 0
+                || (from - hours.getStartMinute()) % hours.getSlotMinutes() != 0) {
+            throw new SchedulingConflictException(format(time) + " is not on the doctor's "
+                    + hours.getSlotMinutes() + "-minute slot grid.");
+        }
+        if (start.isBefore(now)) {
+            throw new SchedulingConflictException(format(time) + " on " + start.toLocalDate() + " has already passed.");
+        }
+    }
+
+    // Every occurrence is validated on its own before the clashes are collected.
+    private static void checkAll(Map<LocalDate, DayBook> books, WorkingHours hours, List<LocalDateTime> starts,
+                                 int duration, LocalDateTime now) throws SQLException {
+        LocalTime time = starts.get(0).toLocalTime();
+        List<LocalDate> clashes = new ArrayList<>();
+        for (LocalDateTime start : starts) {
+            checkSlot(hours, start, duration, now);
+            int from = start.toLocalTime().toSecondOfDay() / 60;
+            if (books.get(start.toLocalDate()).overlaps(from, from + duration)) {
+                clashes.add(start.toLocalDate());
+            }
+        }
+        if (!clashes.isEmpty()) {
+            throw new SchedulingConflictException("The doctor is already booked at " + format(time) + " on "
+                    + clashes.size() + " of " + starts.size() + " dates: " + clashes + ".");
+        }
+    }
+
+    // Called after the write, so the days take the stamp it left behind.
+    private static void addAll(Connection conn, String doctorUsername, Map<LocalDate, DayBook> books,
+                               List<LocalDateTime> starts, int duration) throws SQLException {
+        long version = ScheduleRepository.findVersion(conn, doctorUsername);
+        for (LocalDateTime start : starts) {
+            int from = start.toLocalTime().toSecondOfDay() / 60;
+            DayBook book = books.get(start.toLocalDate());
+            book.add(from, from + duration);
+            book.version = version;
+            cache(new DayKey(doctorUsername, start.toLocalDate()), book);
+        }
+    }
+
+    // idx_appointment_doctor_slot refuses a second booking of the same start, e.g. from a workstation that
+    // has not picked up this engine's checks; the patient sees it like any other conflict.
+    private static SQLException slotTaken(SQLException e, String message) {
+        if ((e.getErrorCode() & 0xff) == SQLITE_CONSTRAINT && String.valueOf(e.getMessage()).contains("UNIQUE")) {
+            return new SchedulingConflictException(message);
+        }
+        return e;
+    }
+
+    private static int notBefore(LocalDate day, LocalDateTime now) {
+        return day.equals(now.toLocalDate()) ? now.toLocalTime().toSecondOfDay() / 60 : 0;
+    }
+
+    private static DayBook day(String doctorUsername, LocalDate day) throws SQLException {
+        return day(doctorUsername, day, ScheduleRepository.findVersion(doctorUsername));
+    }
+
+    // The stamp is read before the rows, so a write landing in between leaves the day one version behind
+    // and it is simply read again next time.
+    private static DayBook day(String doctorUsername, LocalDate day, long version) throws SQLException {
+        DayKey key = new DayKey(doctorUsername, day);
+        DayBook book = cached(key);
+        if (book == null || book.version != version) {
+            book = new DayBook(ScheduleRepository.findHours(doctorUsername),
+                    AppointmentRepository.findBooked(doctorUsername, day), version);
+            cache(key, book);
+        }
+        return book;
+    }
+
+    private static DayBook reload(Connection conn, String doctorUsername, LocalDate day) throws SQLException {
+        DayBook book = new DayBook(ScheduleRepository.findHours(conn, doctorUsername),
+                AppointmentRepository.findBooked(conn, doctorUsername, day),
+                ScheduleRepository.findVersion(conn, doctorUsername));
+        cache(new DayKey(doctorUsername, day), book);
+        return book;
+    }
+
+    // The days the given starts fall on, rebuilt from one range query over the first to the last of them.
+    private static Map<LocalDate, DayBook> reload(Connection conn, String doctorUsername, WorkingHours hours,
+                                                  List<LocalDateTime> starts, long excludeSeriesId) throws SQLException {
+        long version = ScheduleRepository.findVersion(conn, doctorUsername);
+        TreeMap<LocalDate, List<Appointment>> byDay = new TreeMap<>();
+        for (LocalDateTime start : starts) {
+            byDay.put(start.toLocalDate(), new ArrayList<>());
+        }
+        for (Appointment appointment : AppointmentRepository.findBooked(conn, doctorUsername, byDay.firstKey(),
+                byDay.lastKey().plusDays(1), excludeSeriesId)) {
+            List<Appointment> day = byDay.get(appointment.getStart().toLocalDate());
+            if (day != null) {
+                day.add(appointment);
+            }
+        }
+        Map<LocalDate, DayBook> books = new HashMap<>();
+        for (Map.Entry<LocalDate, List<Appointment>> entry : byDay.entrySet()) {
+            books.put(entry.getKey(), new DayBook(hours, entry.getValue(), version));
+        }
+        return books;
+    }
+
+    // Loads the days of any doctor whose cached days are missing or behind their stamp, and returns the stamps.
+    private static Map<String, Long> preload(List<String> doctorUsernames, LocalDate firstDay, int days)
+            throws SQLException {
+        Map<String, Long> versions = ScheduleRepository.findVersions(doctorUsernames);
+        List<String> missing = new ArrayList<>();
+        synchronized (DAYS) {
+            for (String doctor : doctorUsernames) {
+                for (int d = 0; d < days; d++) {
+                    DayBook book = DAYS.get(new DayKey(doctor, firstDay.plusDays(d)));
+                    if (book == null || book.version != versions.get(doctor)) {
+                        missing.add(doctor);
+                        break;
+                    }
+                }
+            }
+        }
+        if (missing.isEmpty()) return versions;
+
+        Map<String, WorkingHours> hours = ScheduleRepository.findHours(missing);
+        Map<DayKey, List<Appointment>> byDay = new HashMap<>();
+        for (Appointment appointment : AppointmentRepository.findBooked(missing, firstDay, firstDay.plusDays(days))) {
+            byDay.computeIfAbsent(new DayKey(appointment.getDoctor(), appointment.getStart().toLocalDate()),
+                    key -> new ArrayList<>()).add(appointment);
+        }
+
+        synchronized (DAYS) {
+            for (String doctor : missing) {
+                for (int d = 0; d < days; d++) {
+                    DayKey key = new DayKey(doctor, firstDay.plusDays(d));
+                    DayBook book = DAYS.get(key);
+                    if (book == null || book.version != versions.get(doctor)) {
+                        DAYS.put(key, new DayBook(hours.get(doctor), byDay.getOrDefault(key, List.of()),
+                                versions.get(doctor)));
+                    }
+                }
+            }
+        }
+        return versions;
+    }
+
+    private static DayBook cached(DayKey key) {
+        synchronized (DAYS) {
+            return DAYS.get(key);
+        }
+    }
+
+    private static void cache(DayKey key, DayBook book) {
+        synchronized (DAYS) {
+            DAYS.put(key, book);
+        }
+    }
+}
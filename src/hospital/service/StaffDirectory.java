@@ -0,0 +1,56 @@
+package hospital.service;
+
+import hospital.model.User;
+import hospital.repository.UserRepository;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+// Every doctor and nurse and who each nurse works for, held in memory for the pickers that list staff.
+// current() reads the staff_version row, which triggers bump on any change to staff accounts or assignments
+// from any workstation, and reloads only when it has moved; otherwise it answers from memory. Screens can
+// fill a picker from peek() straight away and then refresh it from current() in the background.
+public final class StaffDirectory {
+
+    // nurseAssignments maps a nurse's username to their doctor's username. The lists are replaced, never
+    // changed, so a caller can tell a reload from the same snapshot by identity.
+    public record Snapshot(long version, List<User> doctors, List<User> nurses, Map<String, String> nurseAssignments) {}
+
+    private static volatile Snapshot snapshot;
+
+    private StaffDirectory() {}
+
+    // The last snapshot loaded, possibly out of date, or null if none has been. Safe on the FX thread.
+    public static Snapshot peek() {
+        return snapshot;
+    }
+
+    public static Snapshot current() throws SQLException {
+        long version = UserRepository.findStaffVersion();
+        Snapshot known = snapshot;
+        if (known != null && known.version() == version) {
+            return known;
+        }
+        return reload(version);
+    }
+
+    public static List<User> doctors() throws SQLException {
+        return current().doctors();
+    }
+
+    // The version is read before the rows, so a change made while they are read shows up as a newer version
+    // on the next call and is loaded then.
+    private static synchronized Snapshot reload(long version) throws SQLException {
+        Snapshot known = snapshot;
+        if (known != null && known.version() == version) {
+            return known;
+        }
+        Snapshot loaded = new Snapshot(version,
+                List.copyOf(UserRepository.findByRole("doctor")),
+                List.copyOf(UserRepository.findByRole("nurse")),
+                Map.copyOf(UserRepository.findNurseAssignments()));
+        snapshot = loaded;
+        return loaded;
+    }
+}
@@ -1,8 +1,10 @@
 package hospital.ui;
 
+import hospital.model.User;
 import javafx.scene.control.*;
 import javafx.scene.layout.*;
 import javafx.scene.text.*;
+import javafx.util.StringConverter;
 
 public class Components {
     
@@ -93,4 +95,24 @@ public class Components {
         cb.setStyle("-fx-background-radius: 5; -fx-border-radius: 5;");
         return cb;
     }
+
+    public static ComboBox<User> createUserComboBox(String prompt) {
+        ComboBox<User> cb = new ComboBox<>();
+        cb.setPromptText(prompt);
+        cb.setPrefWidth(280);
+        cb.setPrefHeight(35);
+        cb.setStyle("-fx-background-radius: 5; -fx-border-radius: 5;");
+        cb.setConverter(new StringConverter<>() {
+            @Override
+            public String toString(User user) {
+                return user == null ? "" : user.getDisplayName();
+            }
+
+            @Override
+            public User fromString(String text) {
+                return null;
+            }
+        });
+        return cb;
+    }
 }
\ No newline at end of file
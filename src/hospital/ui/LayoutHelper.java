@@ -34,6 +34,13 @@ public class LayoutHelper {
         return label;
     }
     
+    public static Label createPlaceholder(String text) {
+        Label label = new Label(text);
+        label.setFont(Font.font("Arial", FontPosture.ITALIC, 13));
+        label.setStyle("-fx-text-fill: #7f8c8d;");
+        return label;
+    }
+    
     public static HBox createButtonRow(Button... buttons) {
         HBox row = new HBox(10);
         row.setAlignment(Pos.CENTER);
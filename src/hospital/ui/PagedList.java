@@ -0,0 +1,138 @@
+package hospital.ui;
+
+import hospital.util.Async;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.scene.control.IndexedCell;
+import javafx.scene.control.ListView;
+import javafx.scene.control.skin.VirtualFlow;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+// Items for a ListView that are fetched a page at a time. show() starts a new result set from its first page;
+// cells report the rows they display through rowShown(), and showing the last loaded row fetches the next page
+// after it. Replies for a result set that has since been replaced are dropped.
+//
+// With a window (maxItems > 0) at most maxItems rows are held: rows scrolled far past are dropped from the
+// other end and fetched again through the previous-page loader when the user scrolls back to them.
+public class PagedList<T> {
+
+    public interface PageLoader<T> {
+        List<T> load(T anchor, int limit) throws Exception;
+    }
+
+    private final ObservableList<T> items = FXCollections.observableArrayList();
+    private final int pageSize;
+    private final int maxItems;
+    private final Consumer<Throwable> onError;
+    private ListView<T> view;
+    private PageLoader<T> next;
+    private PageLoader<T> previous;
+    private int generation;
+    private boolean loading;
+    private boolean exhausted = true;
+    private boolean trimmed;
+
+    public PagedList(int pageSize, Consumer<Throwable> onError) {
+        this(pageSize, 0, onError);
+    }
+
+    public PagedList(int pageSize, int maxItems, Consumer<Throwable> onError) {
+        this.pageSize = pageSize;
+        this.maxItems = maxItems;
+        this.onError = onError;
+    }
+
+    public ObservableList<T> getItems() {
+        return items;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    // Needed for a window, so the rows on screen stay put when rows before them are dropped or fetched again.
+    public PagedList<T> attach(ListView<T> view) {
+        this.view = view;
+        view.setItems(items);
+        return this;
+    }
+
+    public void show(List<T> firstPage, PageLoader<T> next) {
+        show(firstPage, next, null);
+    }
+
+    // previous gets the first row held and returns the rows just before it, in display order.
+    public void show(List<T> firstPage, PageLoader<T> next, PageLoader<T> previous) {
+        this.next = next;
+        this.previous = previous;
+        generation++;
+        loading = false;
+        exhausted = firstPage.size() < pageSize;
+        trimmed = false;
+        items.setAll(firstPage);
+    }
+
+    public void rowShown(int index) {
+        if (index == items.size() - 1 && !exhausted) {
+            load(next, items.size() - 1, true);
+        } else if (index == 0 && trimmed) {
+            load(previous, 0, false);
+        }
+    }
+
+    private void load(PageLoader<T> loader, int anchorIndex, boolean forward) {
+        if (loading || items.isEmpty()) return;
+
+        loading = true;
+        int requested = generation;
+        T anchor = items.get(anchorIndex);
+
+        Async.load(() -> loader.load(anchor, pageSize), page -> {
+            if (requested != generation) return;
+            loading = false;
+            if (forward) {
+                exhausted = page.size() < pageSize;
+                items.addAll(page);
+                int excess = maxItems > 0 ? items.size() - maxItems : 0;
+                if (excess > 0) {
+                    int top = firstVisibleIndex();
+                    items.remove(0, excess);
+                    trimmed = true;
+                    scrollTo(top - excess);
+                }
+            } else {
+                trimmed = page.size() == pageSize;
+                int top = firstVisibleIndex();
+                items.addAll(0, page);
+                int excess = items.size() - maxItems;
+                if (excess > 0) {
+                    items.remove(items.size() - excess, items.size());
+                    exhausted = false;
+                }
+                scrollTo(top + page.size());
+            }
+        }, e -> {
+            if (requested != generation) return;
+            loading = false;
+            onError.accept(e);
+        });
+    }
+
+    private int firstVisibleIndex() {
+        if (view != null && view.lookup(".virtual-flow") instanceof VirtualFlow<?> flow) {
+            IndexedCell<?> cell = flow.getFirstVisibleCell();
+            if (cell != null) {
+                return cell.getIndex();
+            }
+        }
+        return 0;
+    }
+
+    private void scrollTo(int index) {
+        if (view != null) {
+            view.scrollTo(Math.max(0, index));
+        }
+    }
+}
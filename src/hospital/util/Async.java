@@ -0,0 +1,66 @@
+package hospital.util;
+
+import javafx.application.Platform;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+// Database work runs on virtual threads; results are handed back to the JavaFX application thread.
+public class Async {
+
+    public interface Task<T> {
+        T call() throws Exception;
+    }
+
+    private static final ExecutorService EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+
+    public static <T> CompletableFuture<T> supply(Task<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        EXECUTOR.execute(() -> {
+            try {
+                future.complete(task.call());
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        });
+        return future;
+    }
+
+    public static <T> CompletableFuture<T> load(Task<T> task, Consumer<T> onSuccess, Consumer<Throwable> onError) {
+        return onFx(supply(task), onSuccess, onError);
+    }
+
+    public static <T> CompletableFuture<T> onFx(CompletableFuture<T> future, Consumer<T> onSuccess, Consumer<Throwable> onError) {
+        future.whenComplete((result, error) -> runOnFx(() -> {
+            if (error != null) {
+                onError.accept(unwrap(error));
+            } else {
+                onSuccess.accept(result);
+            }
+        }));
+        return future;
+    }
+
+    public static void runOnFx(Runnable action) {
+        if (Platform.isFxApplicationThread()) {
+            action.run();
+        } else {
+            Platform.runLater(action);
+        }
+    }
+
+    public static Throwable unwrap(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
+    public static void shutdown() {
+        EXECUTOR.shutdown();
+    }
+}
@@ -4,69 +4,26 @@ import hospital.model.DBConnection;
 import java.sql.Connection;
 import java.sql.Statement;
 import java.sql.ResultSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 public class DBInitializer {
+    private static final StorageProfile PROFILE = StorageProfile.fromSystemProperties();
+    private static ScheduledExecutorService maintenance;
+
     public static void initializeDatabase() {
+        DBConnection.addSetupHook(PROFILE::applyToConnection);
+
         try (Connection conn = DBConnection.getConnection();
              Statement stmt = conn.createStatement()) {
 
-            stmt.execute("PRAGMA foreign_keys = ON");
-
-            String usersTable = "CREATE TABLE IF NOT EXISTS users (" +
-                                "username TEXT PRIMARY KEY, " +
-                                "password TEXT NOT NULL, " +
-                                "role TEXT NOT NULL, " +
-                                "email TEXT, " +
-                                "name TEXT)";
-            stmt.execute(usersTable);
-
-            String patientInfoTable = "CREATE TABLE IF NOT EXISTS patient_info (" +
-                                      "username TEXT PRIMARY KEY, " +
-                                      "name TEXT NOT NULL, " +
-                                      "phone TEXT NOT NULL, " +
-                                      "email TEXT, " +
-                                      "gender TEXT, " +
-                                      "dob TEXT, " +
-                                      "blood_group TEXT, " +
-                                      "assigned_doctor TEXT, " +
-                                      "assigned_nurse TEXT, " +
-                                      "type TEXT, " +
-                                      "FOREIGN KEY(username) REFERENCES users(username) ON DELETE CASCADE" +
-                                      ")";
-            stmt.execute(patientInfoTable);
-
-            String medicalHistoryTable = "CREATE TABLE IF NOT EXISTS medical_history (" +
-                                         "patient_username TEXT NOT NULL, " +
-                                         "date TEXT NOT NULL, " +
-                                         "notes TEXT, " +
-                                         "PRIMARY KEY(patient_username, date), " +
-                                         "FOREIGN KEY(patient_username) REFERENCES users(username) ON DELETE CASCADE" +
-                                         ")";
-            stmt.execute(medicalHistoryTable);
-
-            String appointmentsTable = "CREATE TABLE IF NOT EXISTS appointments (" +
-                                       "doctor TEXT NOT NULL, " +
-                                       "patient_name TEXT NOT NULL, " +
-                                       "appointment_date TEXT NOT NULL, " +
-                                       "appointment_time TEXT NOT NULL, " +
-                                       "PRIMARY KEY(doctor, patient_name, appointment_date, appointment_time))";
-            stmt.execute(appointmentsTable);
+            PROFILE.applyToDatabase(conn);
 
-            String doctorNurseTable = "CREATE TABLE IF NOT EXISTS doctor_nurse_assignment (" +
-                                      "doctor_username TEXT NOT NULL, " +
-                                      "nurse_username TEXT NOT NULL, " +
-                                      "PRIMARY KEY (doctor_username, nurse_username), " +
-                                      "FOREIGN KEY(doctor_username) REFERENCES users(username) ON DELETE CASCADE, " +
-                                      "FOREIGN KEY(nurse_username) REFERENCES users(username) ON DELETE CASCADE" +
-                                      ")";
-            stmt.execute(doctorNurseTable);
+            SchemaMigrator.migrate(conn);
 
-            stmt.execute("CREATE INDEX IF NOT EXISTS idx_users_role ON users(role)");
-            stmt.execute("CREATE INDEX IF NOT EXISTS idx_doctor_nurse_assignment ON doctor_nurse_assignment(nurse_username)");
-            stmt.execute("CREATE INDEX IF NOT EXISTS idx_patient_doctor ON patient_info(assigned_doctor)");
-            stmt.execute("CREATE INDEX IF NOT EXISTS idx_appointment_doctor ON appointments(doctor)");
-
-            System.out.println("Database tables and indexes initialized.");
+            System.out.println("Database schema at version " + SchemaMigrator.currentVersion() + ".");
+            System.out.println(PROFILE.describe(conn));
 
             try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) AS count FROM users WHERE username = 'admin'")) {
                 if (rs.next() && rs.getInt("count") == 0) {
@@ -80,5 +37,48 @@ public class DBInitializer {
             System.err.println("Database initialization failed:");
             e.printStackTrace();
         }
+
+        startMaintenance();
+    }
+
+    private static synchronized void startMaintenance() {
+        if (maintenance != null) return;
+
+        maintenance = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-maintenance");
+            t.setDaemon(true);
+            return t;
+        });
+
+        if (PROFILE.isWal() && PROFILE.getCheckpointIntervalSeconds() > 0) {
+            long interval = PROFILE.getCheckpointIntervalSeconds();
+            maintenance.scheduleWithFixedDelay(() -> runPragma("PRAGMA wal_checkpoint(PASSIVE)"),
+                    interval, interval, TimeUnit.SECONDS);
+        }
+        if (PROFILE.getOptimizeIntervalSeconds() > 0) {
+            long interval = PROFILE.getOptimizeIntervalSeconds();
+            maintenance.scheduleWithFixedDelay(() -> runPragma("PRAGMA optimize"),
+                    interval, interval, TimeUnit.SECONDS);
+        }
+    }
+
+    public static synchronized void shutdown() {
+        if (maintenance != null) {
+            maintenance.shutdownNow();
+            maintenance = null;
+        }
+        runPragma("PRAGMA optimize");
+        if (PROFILE.isWal()) {
+            runPragma("PRAGMA wal_checkpoint(TRUNCATE)");
+        }
+    }
+
+    private static void runPragma(String pragma) {
+        try (Connection conn = DBConnection.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(pragma);
+        } catch (Exception e) {
+            System.err.println("Database maintenance failed (" + pragma + "): " + e.getMessage());
+        }
     }
 }
\ No newline at end of file
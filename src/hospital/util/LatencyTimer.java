@@ -0,0 +1,34 @@
+package hospital.util;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Count, total and maximum of a series of durations, safe to update from any thread. Used by the per-statement,
+// per-dashboard snapshot and first-paint stats printed at shutdown.
+public final class LatencyTimer {
+
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public void add(long nanos) {
+        count.increment();
+        total.add(nanos);
+        max.accumulate(nanos);
+    }
+
+    public long getCount() { return count.sum(); }
+    public long getTotalNanos() { return total.sum(); }
+    public long getMaxNanos() { return max.get(); }
+
+    public double getAverageMillis() {
+        long n = count.sum();
+        return n == 0 ? 0 : total.sum() / 1_000_000.0 / n;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d avg=%.3fms max=%.3fms total=%.1fms",
+                getCount(), getAverageMillis(), getMaxNanos() / 1_000_000.0, getTotalNanos() / 1_000_000.0);
+    }
+}
@@ -0,0 +1,58 @@
+package hospital.util;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Time from a dashboard being opened to its sections being filled in, per role: "first" is when the first
+// section replaced its loading placeholder (with data or an error), "full" when the last one did. Created and
+// updated on the JavaFX application thread; the figures are printed at shutdown.
+public final class PaintTimer {
+
+    private static final Map<String, LatencyTimer> FIRST = new ConcurrentHashMap<>();
+    private static final Map<String, LatencyTimer> FULL = new ConcurrentHashMap<>();
+
+    private final String role;
+    private final long start = System.nanoTime();
+    private final Set<String> pending;
+    private final int sections;
+
+    private PaintTimer(String role, Set<String> pending) {
+        this.role = role;
+        this.pending = pending;
+        this.sections = pending.size();
+    }
+
+    public static PaintTimer start(String role, String... sections) {
+        return new PaintTimer(role, new HashSet<>(Set.of(sections)));
+    }
+
+    public boolean isPainted(String section) {
+        return !pending.contains(section);
+    }
+
+    public void painted(String section) {
+        if (!pending.remove(section)) return;
+        long elapsed = System.nanoTime() - start;
+        if (pending.size() == sections - 1) {
+            FIRST.computeIfAbsent(role, k -> new LatencyTimer()).add(elapsed);
+        }
+        if (pending.isEmpty()) {
+            FULL.computeIfAbsent(role, k -> new LatencyTimer()).add(elapsed);
+        }
+    }
+
+    public static String summary() {
+        StringBuilder out = new StringBuilder("paint[roles=" + FIRST.size() + "]");
+        new TreeMap<>(FIRST).forEach((role, first) -> {
+            out.append(String.format("%n  %s first: %s", role, first));
+            LatencyTimer full = FULL.get(role);
+            if (full != null) {
+                out.append(String.format("%n  %s full:  %s", role, full));
+            }
+        });
+        return out.toString();
+    }
+}
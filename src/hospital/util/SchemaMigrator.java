@@ -0,0 +1,422 @@
+package hospital.util;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+// Versioned schema changes tracked in PRAGMA user_version. Each migration runs in its own transaction
+// with foreign keys disabled, following SQLite's create-copy-drop-rename procedure for table rebuilds,
+// and is only committed once PRAGMA foreign_key_check comes back clean.
+public class SchemaMigrator {
+
+    interface Migration {
+        void apply(Statement stmt) throws SQLException;
+    }
+
+    private static final List<Migration> MIGRATIONS = List.of(
+            SchemaMigrator::integerKeys,
+            SchemaMigrator::normalizedRoles,
+            SchemaMigrator::userSearch,
+            SchemaMigrator::historySearch,
+            SchemaMigrator::doctorHours,
+            SchemaMigrator::appointmentStart,
+            SchemaMigrator::appointmentSeries,
+            SchemaMigrator::appointmentSlotUnique,
+            SchemaMigrator::staffVersion,
+            SchemaMigrator::patientVersion,
+            SchemaMigrator::scheduleVersion,
+            SchemaMigrator::rosterVersion
+    );
+
+    public static void migrate(Connection conn) throws SQLException {
+        int version = userVersion(conn);
+        for (int i = version; i < MIGRATIONS.size(); i++) {
+            long start = System.nanoTime();
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("PRAGMA foreign_keys = OFF");
+                conn.setAutoCommit(false);
+                try {
+                    MIGRATIONS.get(i).apply(stmt);
+                    checkForeignKeys(stmt);
+                    stmt.execute("PRAGMA user_version = " + (i + 1));
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(true);
+                    stmt.execute("PRAGMA foreign_keys = ON");
+                }
+            }
+            System.out.printf("Schema migrated to version %d in %.1f ms%n", i + 1, (System.nanoTime() - start) / 1_000_000.0);
+        }
+    }
+
+    public static int currentVersion() {
+        return MIGRATIONS.size();
+    }
+
+    private static int userVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private static void checkForeignKeys(Statement stmt) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("PRAGMA foreign_key_check")) {
+            if (rs.next()) {
+                throw new SQLException("Foreign key violation in " + rs.getString(1) + " after migration");
+            }
+        }
+    }
+
+    private static int count(Statement stmt, String sql) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    // Version 1: integer surrogate keys. Rows used to reference users by username, and appointments and
+    // patient_info by whatever the doctor was called at the time (username, name or "Dr. name").
+    // The original tables are created first if missing so new and existing databases take the same path.
+    private static void integerKeys(Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE IF NOT EXISTS users (username TEXT PRIMARY KEY, password TEXT NOT NULL, " +
+                "role TEXT NOT NULL, email TEXT, name TEXT)");
+        stmt.execute("CREATE TABLE IF NOT EXISTS patient_info (username TEXT PRIMARY KEY, name TEXT NOT NULL, " +
+                "phone TEXT NOT NULL, email TEXT, gender TEXT, dob TEXT, blood_group TEXT, assigned_doctor TEXT, " +
+                "assigned_nurse TEXT, type TEXT)");
+        stmt.execute("CREATE TABLE IF NOT EXISTS medical_history (patient_username TEXT NOT NULL, date TEXT NOT NULL, " +
+                "notes TEXT, PRIMARY KEY(patient_username, date))");
+        stmt.execute("CREATE TABLE IF NOT EXISTS appointments (doctor TEXT NOT NULL, patient_name TEXT NOT NULL, " +
+                "appointment_date TEXT NOT NULL, appointment_time TEXT NOT NULL, " +
+                "PRIMARY KEY(doctor, patient_name, appointment_date, appointment_time))");
+        stmt.execute("CREATE TABLE IF NOT EXISTS doctor_nurse_assignment (doctor_username TEXT NOT NULL, " +
+                "nurse_username TEXT NOT NULL, PRIMARY KEY (doctor_username, nurse_username))");
+
+        stmt.execute("CREATE TABLE users_new (" +
+                "id INTEGER PRIMARY KEY, " +
+                "username TEXT NOT NULL UNIQUE, " +
+                "password TEXT NOT NULL, " +
+                "role TEXT NOT NULL, " +
+                "email TEXT, " +
+                "name TEXT)");
+        stmt.execute("CREATE TABLE patient_info_new (" +
+                "user_id INTEGER PRIMARY KEY REFERENCES users(id) ON DELETE CASCADE, " +
+                "name TEXT NOT NULL, " +
+                "phone TEXT NOT NULL, " +
+                "email TEXT, " +
+                "gender TEXT, " +
+                "dob TEXT, " +
+                "blood_group TEXT, " +
+                "assigned_doctor_id INTEGER REFERENCES users(id) ON DELETE SET NULL, " +
+                "type TEXT)");
+        stmt.execute("CREATE TABLE medical_history_new (" +
+                "id INTEGER PRIMARY KEY, " +
+                "patient_id INTEGER NOT NULL REFERENCES users(id) ON DELETE CASCADE, " +
+                "date TEXT NOT NULL, " +
+                "notes TEXT, " +
+                "UNIQUE(patient_id, date))");
+        stmt.execute("CREATE TABLE appointments_new (" +
+                "id INTEGER PRIMARY KEY, " +
+                "doctor_id INTEGER NOT NULL REFERENCES users(id) ON DELETE CASCADE, " +
+                "patient_id INTEGER NOT NULL REFERENCES users(id) ON DELETE CASCADE, " +
+                "appointment_date TEXT NOT NULL, " +
+                "appointment_time TEXT NOT NULL, " +
+                "UNIQUE(doctor_id, patient_id, appointment_date, appointment_time))");
+        stmt.execute("CREATE TABLE doctor_nurse_assignment_new (" +
+                "doctor_id INTEGER NOT NULL REFERENCES users(id) ON DELETE CASCADE, " +
+                "nurse_id INTEGER NOT NULL REFERENCES users(id) ON DELETE CASCADE, " +
+                "PRIMARY KEY (doctor_id, nurse_id))");
+
+        stmt.executeUpdate("INSERT INTO users_new (username, password, role, email, name) " +
+                "SELECT username, password, role, email, name FROM users ORDER BY rowid");
+
+        // Every spelling a doctor reference could have been stored under. Usernames win over names,
+        // and the first doctor wins when two share a name.
+        stmt.execute("CREATE TEMP TABLE doctor_alias (alias TEXT PRIMARY KEY, doctor_id INTEGER NOT NULL)");
+        stmt.executeUpdate("INSERT OR IGNORE INTO doctor_alias SELECT username, id FROM users_new " +
+                "WHERE LOWER(role) = 'doctor' ORDER BY id");
+        stmt.executeUpdate("INSERT OR IGNORE INTO doctor_alias SELECT name, id FROM users_new " +
+                "WHERE LOWER(role) = 'doctor' AND name IS NOT NULL ORDER BY id");
+        stmt.executeUpdate("INSERT OR IGNORE INTO doctor_alias SELECT 'Dr. ' || name, id FROM users_new " +
+                "WHERE LOWER(role) = 'doctor' AND name IS NOT NULL ORDER BY id");
+
+        int patients = stmt.executeUpdate("INSERT INTO patient_info_new (user_id, name, phone, email, gender, dob, " +
+                "blood_group, assigned_doctor_id, type) " +
+                "SELECT u.id, p.name, p.phone, p.email, p.gender, p.dob, p.blood_group, da.doctor_id, p.type " +
+                "FROM patient_info p JOIN users_new u ON u.username = p.username " +
+                "LEFT JOIN doctor_alias da ON da.alias = p.assigned_doctor");
+        int history = stmt.executeUpdate("INSERT INTO medical_history_new (patient_id, date, notes) " +
+                "SELECT u.id, h.date, h.notes FROM medical_history h JOIN users_new u ON u.username = h.patient_username " +
+                "ORDER BY h.rowid");
+        int appointments = stmt.executeUpdate("INSERT OR IGNORE INTO appointments_new (doctor_id, patient_id, " +
+                "appointment_date, appointment_time) " +
+                "SELECT da.doctor_id, u.id, a.appointment_date, a.appointment_time FROM appointments a " +
+                "JOIN doctor_alias da ON da.alias = a.doctor " +
+                "JOIN users_new u ON u.username = a.patient_name ORDER BY a.rowid");
+        stmt.executeUpdate("INSERT OR IGNORE INTO doctor_nurse_assignment_new (doctor_id, nurse_id) " +
+                "SELECT d.id, n.id FROM doctor_nurse_assignment a " +
+                "JOIN users_new d ON d.username = a.doctor_username " +
+                "JOIN users_new n ON n.username = a.nurse_username");
+
+        int droppedPatients = count(stmt, "SELECT COUNT(*) FROM patient_info") - patients;
+        int droppedHistory = count(stmt, "SELECT COUNT(*) FROM medical_history") - history;
+        int droppedAppointments = count(stmt, "SELECT COUNT(*) FROM appointments") - appointments;
+        stmt.execute("DROP TABLE temp.doctor_alias");
+
+        for (String table : List.of("users", "patient_info", "medical_history", "appointments", "doctor_nurse_assignment")) {
+            stmt.execute("DROP TABLE " + table);
+            stmt.execute("ALTER TABLE " + table + "_new RENAME TO " + table);
+        }
+
+        stmt.execute("CREATE INDEX idx_users_role ON users(role)");
+        stmt.execute("CREATE INDEX idx_doctor_nurse_assignment ON doctor_nurse_assignment(nurse_id)");
+        stmt.execute("CREATE INDEX idx_patient_doctor ON patient_info(assigned_doctor_id)");
+        stmt.execute("CREATE INDEX idx_appointment_doctor_date ON appointments(doctor_id, appointment_date, appointment_time, patient_id)");
+        stmt.execute("CREATE INDEX idx_appointment_patient ON appointments(patient_id, appointment_date, appointment_time)");
+
+        if (droppedPatients + droppedHistory + droppedAppointments > 0) {
+            System.out.printf("Schema migration skipped orphaned rows: %d patients, %d history records, %d appointments%n",
+                    droppedPatients, droppedHistory, droppedAppointments);
+        }
+    }
+
+    // Version 2: roles were saved as typed ("Doctor", "nurse ", ...) and every query had to wrap the column
+    // in LOWER(), which kept idx_users_role from being used. Roles are now lower-case and constrained.
+    private static void normalizedRoles(Statement stmt) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("SELECT role, COUNT(*) FROM users " +
+                "WHERE LOWER(TRIM(role)) NOT IN ('admin', 'doctor', 'nurse', 'patient') GROUP BY role")) {
+            if (rs.next()) {
+                throw new SQLException("Unrecognized role '" + rs.getString(1) + "' on " + rs.getInt(2) + " user(s)");
+            }
+        }
+
+        stmt.execute("CREATE TABLE users_new (" +
+                "id INTEGER PRIMARY KEY, " +
+                "username TEXT NOT NULL UNIQUE, " +
+                "password TEXT NOT NULL, " +
+                "role TEXT NOT NULL CHECK (role IN ('admin', 'doctor', 'nurse', 'patient')), " +
+                "email TEXT, " +
+                "name TEXT)");
+        stmt.executeUpdate("INSERT INTO users_new (id, username, password, role, email, name) " +
+                "SELECT id, username, password, LOWER(TRIM(role)), email, name FROM users");
+        stmt.execute("DROP TABLE users");
+        stmt.execute("ALTER TABLE users_new RENAME TO users");
+        stmt.execute("CREATE INDEX idx_users_role ON users(role)");
+    }
+
+    // Version 3: admin user search. user_search is an FTS5 index over each user's username and the name the
+    // UI shows for them (the patient_info name for patients), keyed by users.id and kept current by triggers.
+    // idx_users_role gains username so a role-filtered listing can be paged in username order from the index.
+    private static void userSearch(Statement stmt) throws SQLException {
+        stmt.execute("CREATE VIRTUAL TABLE user_search USING fts5(username, name, " +
+                "tokenize = 'unicode61 remove_diacritics 2', prefix = '2 3')");
+        stmt.executeUpdate("INSERT INTO user_search (rowid, username, name) " +
+                "SELECT u.id, u.username, COALESCE(p.name, u.name) FROM users u LEFT JOIN patient_info p ON p.user_id = u.id");
+
+        stmt.execute("CREATE TRIGGER user_search_insert AFTER INSERT ON users BEGIN " +
+                "INSERT INTO user_search (rowid, username, name) VALUES (new.id, new.username, new.name); END");
+        stmt.execute("CREATE TRIGGER user_search_update AFTER UPDATE OF username, name ON users BEGIN " +
+                "UPDATE user_search SET username = new.username, " +
+                "name = COALESCE((SELECT name FROM patient_info WHERE user_id = new.id), new.name) " +
+                "WHERE rowid = new.id; END");
+        stmt.execute("CREATE TRIGGER user_search_delete AFTER DELETE ON users BEGIN " +
+                "DELETE FROM user_search WHERE rowid = old.id; END");
+        stmt.execute("CREATE TRIGGER user_search_patient_insert AFTER INSERT ON patient_info BEGIN " +
+                "UPDATE user_search SET name = new.name WHERE rowid = new.user_id; END");
+        stmt.execute("CREATE TRIGGER user_search_patient_update AFTER UPDATE OF name ON patient_info BEGIN " +
+                "UPDATE user_search SET name = new.name WHERE rowid = new.user_id; END");
+
+        stmt.execute("DROP INDEX idx_users_role");
+        stmt.execute("CREATE INDEX idx_users_role ON users(role, username)");
+    }
+
+    // Version 4: full-text search over medical notes. medical_history_search is an external-content FTS5 index,
+    // so the note text is stored once in medical_history; the triggers follow the pattern from the FTS5 docs.
+    private static void historySearch(Statement stmt) throws SQLException {
+        stmt.execute("CREATE VIRTUAL TABLE medical_history_search USING fts5(notes, " +
+                "content = 'medical_history', content_rowid = 'id', " +
+                "tokenize = 'porter unicode61 remove_diacritics 2')");
+        stmt.execute("INSERT INTO medical_history_search (medical_history_search) VALUES ('rebuild')");
+
+        stmt.execute("CREATE TRIGGER medical_history_search_insert AFTER INSERT ON medical_history BEGIN " +
+                "INSERT INTO medical_history_search (rowid, notes) VALUES (new.id, new.notes); END");
+        stmt.execute("CREATE TRIGGER medical_history_search_delete AFTER DELETE ON medical_history BEGIN " +
+                "INSERT INTO medical_history_search (medical_history_search, rowid, notes) " +
+                "VALUES ('delete', old.id, old.notes); END");
+        stmt.execute("CREATE TRIGGER medical_history_search_update AFTER UPDATE OF notes ON medical_history BEGIN " +
+                "INSERT INTO medical_history_search (medical_history_search, rowid, notes) " +
+                "VALUES ('delete', old.id, old.notes); " +
+                "INSERT INTO medical_history_search (rowid, notes) VALUES (new.id, new.notes); END");
+    }
+
+    // Version 5: per-doctor working hours for the scheduling engine, as minutes since midnight. Doctors without
+    // a row work the default hours.
+    private static void doctorHours(Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE doctor_hours (" +
+                "doctor_id INTEGER PRIMARY KEY REFERENCES users(id) ON DELETE CASCADE, " +
+                "start_minute INTEGER NOT NULL, " +
+                "end_minute INTEGER NOT NULL, " +
+                "slot_minutes INTEGER NOT NULL, " +
+                "CHECK (start_minute >= 0 AND end_minute <= 1440 AND start_minute + slot_minutes <= end_minute " +
+                "AND slot_minutes > 0))");
+    }
+
+    // Version 6: appointments get one sortable start timestamp ("YYYY-MM-DDTHH:MM", local time) and a length
+    // instead of a date plus a "hh:mm AM" string, which sorted 12 PM before 1 PM and could not be range-scanned.
+    // Existing rows take their doctor's current slot length. Times that cannot be read are reported and
+    // skipped, as are rows that collapse onto an existing one once normalized.
+    private static void appointmentStart(Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE appointments_new (" +
+                "id INTEGER PRIMARY KEY, " +
+                "doctor_id INTEGER NOT NULL REFERENCES users(id) ON DELETE CASCADE, " +
+                "patient_id INTEGER NOT NULL REFERENCES users(id) ON DELETE CASCADE, " +
+                "start_at TEXT NOT NULL CHECK (start_at GLOB '[0-9][0-9][0-9][0-9]-[0-1][0-9]-[0-3][0-9]T[0-2][0-9]:[0-5][0-9]'), " +
+                "duration_minutes INTEGER NOT NULL CHECK (duration_minutes > 0), " +
+                "UNIQUE(doctor_id, patient_id, start_at))");
+
+        int appointments = stmt.executeUpdate("INSERT OR IGNORE INTO appointments_new " +
+                "(id, doctor_id, patient_id, start_at, duration_minutes) " +
+                "SELECT id, doctor_id, patient_id, appointment_date || 'T' || printf('%02d:%02d', " +
+                "CASE suffix WHEN 'AM' THEN h % 12 WHEN 'PM' THEN h % 12 + 12 ELSE h END, m), duration " +
+                "FROM (SELECT a.id, a.doctor_id, a.patient_id, TRIM(a.appointment_date) AS appointment_date, " +
+                "CAST(SUBSTR(a.t, 1, INSTR(a.t, ':') - 1) AS INTEGER) AS h, " +
+                "CAST(SUBSTR(a.t, INSTR(a.t, ':') + 1, 2) AS INTEGER) AS m, " +
+                "UPPER(SUBSTR(a.t, -2)) AS suffix, COALESCE(dh.slot_minutes, 30) AS duration " +
+                "FROM (SELECT *, TRIM(appointment_time) AS t FROM appointments) a " +
+                "LEFT JOIN doctor_hours dh ON dh.doctor_id = a.doctor_id " +
+                "WHERE INSTR(a.t, ':') > 1) " +
+                "WHERE h BETWEEN 0 AND 23 AND m BETWEEN 0 AND 59 AND (suffix NOT IN ('AM', 'PM') OR h BETWEEN 1 AND 12) " +
+                "ORDER BY id");
+        int skipped = count(stmt, "SELECT COUNT(*) FROM appointments") - appointments;
+
+        stmt.execute("DROP TABLE appointments");
+        stmt.execute("ALTER TABLE appointments_new RENAME TO appointments");
+        stmt.execute("CREATE INDEX idx_appointment_doctor_start ON appointments(doctor_id, start_at, duration_minutes, patient_id)");
+        stmt.execute("CREATE INDEX idx_appointment_patient_start ON appointments(patient_id, start_at)");
+
+        if (skipped > 0) {
+            System.out.printf("Schema migration skipped %d appointments with unreadable or duplicate times%n", skipped);
+        }
+    }
+
+    // Version 7: recurring appointments. A series keeps its rule (an RRULE-style string) and each booked
+    // occurrence is an ordinary appointment pointing back at it, so a whole series can be moved or cancelled
+    // with one statement through idx_appointment_series.
+    private static void appointmentSeries(Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE appointment_series (" +
+                "id INTEGER PRIMARY KEY, " +
+                "doctor_id INTEGER NOT NULL REFERENCES users(id) ON DELETE CASCADE, " +
+                "patient_id INTEGER NOT NULL REFERENCES users(id) ON DELETE CASCADE, " +
+                "first_start TEXT NOT NULL, " +
+                "duration_minutes INTEGER NOT NULL CHECK (duration_minutes > 0), " +
+                "rule TEXT NOT NULL)");
+        stmt.execute("ALTER TABLE appointments ADD COLUMN series_id INTEGER " +
+                "REFERENCES appointment_series(id) ON DELETE CASCADE");
+        stmt.execute("CREATE INDEX idx_appointment_series ON appointments(series_id, start_at) WHERE series_id IS NOT NULL");
+    }
+
+    // Version 8: one appointment per doctor and start time, enforced by the database so two workstations
+    // cannot both claim a slot. Where that already happened the earliest booking is kept and the rest are
+    // reported and removed. idx_appointment_doctor_start stays as the covering index for day lookups.
+    private static void appointmentSlotUnique(Statement stmt) throws SQLException {
+        int removed = stmt.executeUpdate("DELETE FROM appointments WHERE id NOT IN " +
+                "(SELECT MIN(id) FROM appointments GROUP BY doctor_id, start_at)");
+        stmt.execute("CREATE UNIQUE INDEX idx_appointment_doctor_slot ON appointments(doctor_id, start_at)");
+
+        if (removed > 0) {
+            System.out.printf("Schema migration removed %d appointments double-booked into an existing slot%n", removed);
+        }
+    }
+
+    // Version 9: a counter bumped by triggers whenever a doctor or nurse account or a doctor-nurse assignment
+    // changes, so the in-memory staff directory can tell with one row read whether it is still current, however
+    // many workstations share the file.
+    private static void staffVersion(Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE staff_version (id INTEGER PRIMARY KEY CHECK (id = 1), version INTEGER NOT NULL)");
+        stmt.execute("INSERT INTO staff_version (id, version) VALUES (1, 0)");
+
+        String bump = "BEGIN UPDATE staff_version SET version = version + 1 WHERE id = 1; END";
+        stmt.execute("CREATE TRIGGER staff_version_user_insert AFTER INSERT ON users " +
+                "WHEN new.role IN ('doctor', 'nurse') " + bump);
+        stmt.execute("CREATE TRIGGER staff_version_user_delete AFTER DELETE ON users " +
+                "WHEN old.role IN ('doctor', 'nurse') " + bump);
+        stmt.execute("CREATE TRIGGER staff_version_user_update AFTER UPDATE OF username, name, role ON users " +
+                "WHEN old.role IN ('doctor', 'nurse') OR new.role IN ('doctor', 'nurse') " + bump);
+        for (String event : List.of("INSERT", "DELETE", "UPDATE")) {
+            stmt.execute("CREATE TRIGGER staff_version_assignment_" + event.toLowerCase() + " AFTER " + event +
+                    " ON doctor_nurse_assignment " + bump);
+        }
+    }
+
+    // Version 10: the same kind of counter for the patient rosters on the doctor and nurse dashboards, bumped
+    // by any change to a patient's row, to the username or name of a patient or doctor (both are shown in the
+    // lists), or to who works for whom.
+    private static void patientVersion(Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE patient_version (id INTEGER PRIMARY KEY CHECK (id = 1), version INTEGER NOT NULL)");
+        stmt.execute("INSERT INTO patient_version (id, version) VALUES (1, 0)");
+
+        String bump = "BEGIN UPDATE patient_version SET version = version + 1 WHERE id = 1; END";
+        for (String event : List.of("INSERT", "DELETE", "UPDATE")) {
+            stmt.execute("CREATE TRIGGER patient_version_info_" + event.toLowerCase() + " AFTER " + event +
+                    " ON patient_info " + bump);
+            stmt.execute("CREATE TRIGGER patient_version_assignment_" + event.toLowerCase() + " AFTER " + event +
+                    " ON doctor_nurse_assignment " + bump);
+        }
+        stmt.execute("CREATE TRIGGER patient_version_user_update AFTER UPDATE OF username, name, role ON users " +
+                "WHEN old.role IN ('patient', 'doctor') OR new.role IN ('patient', 'doctor') " + bump);
+    }
+
+    // Version 11: a counter per doctor for the scheduling engine's cached days, bumped by any change to the
+    // doctor's appointments or working hours, so a workstation notices bookings and cancellations made on
+    // another. Doctors without a row are at version 0. There is no foreign key: rows are written while a
+    // deleted user's appointments cascade away, and a stale row for a missing doctor is harmless.
+    private static void scheduleVersion(Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE schedule_version (doctor_id INTEGER PRIMARY KEY, version INTEGER NOT NULL)");
+
+        String bump = "INSERT INTO schedule_version (doctor_id, version) VALUES (%s.doctor_id, 1) " +
+                "ON CONFLICT (doctor_id) DO UPDATE SET version = version + 1;";
+        for (String table : List.of("appointments", "doctor_hours")) {
+            stmt.execute("CREATE TRIGGER schedule_version_" + table + "_insert AFTER INSERT ON " + table +
+                    " BEGIN " + bump.formatted("new") + " END");
+            stmt.execute("CREATE TRIGGER schedule_version_" + table + "_delete AFTER DELETE ON " + table +
+                    " BEGIN " + bump.formatted("old") + " END");
+            stmt.execute("CREATE TRIGGER schedule_version_" + table + "_update AFTER UPDATE ON " + table +
+                    " BEGIN " + bump.formatted("old") + " " + bump.formatted("new") + " END");
+        }
+    }
+
+    // Version 12: the roster counter is kept per clinician, so an edit only reloads the rosters it shows up in.
+    // A doctor's row moves with their patients' rows and their own name; a nurse's row moves when they are
+    // assigned or unassigned, and their roster is stamped with the newest of their row and their doctors'.
+    // Stamps are drawn from patient_version, now a sequence, so that newest value only ever goes up.
+    private static void rosterVersion(Statement stmt) throws SQLException {
+        for (String event : List.of("insert", "delete", "update")) {
+            stmt.execute("DROP TRIGGER patient_version_info_" + event);
+            stmt.execute("DROP TRIGGER patient_version_assignment_" + event);
+        }
+        stmt.execute("DROP TRIGGER patient_version_user_update");
+        stmt.execute("CREATE TABLE roster_version (user_id INTEGER PRIMARY KEY, version INTEGER NOT NULL)");
+
+        String bump = "UPDATE patient_version SET version = version + 1 WHERE id = 1; " +
+                "INSERT INTO roster_version (user_id, version) SELECT %1$s, version FROM patient_version " +
+                "WHERE id = 1 AND %1$s IS NOT NULL ON CONFLICT (user_id) DO UPDATE SET version = excluded.version;";
+        for (String[] table : new String[][] {{"patient_info", "assigned_doctor_id"}, {"doctor_nurse_assignment", "nurse_id"}}) {
+            String prefix = "CREATE TRIGGER roster_version_" + table[0] + "_";
+            stmt.execute(prefix + "insert AFTER INSERT ON " + table[0] +
+                    " BEGIN " + bump.formatted("new." + table[1]) + " END");
+            stmt.execute(prefix + "delete AFTER DELETE ON " + table[0] +
+                    " BEGIN " + bump.formatted("old." + table[1]) + " END");
+            stmt.execute(prefix + "update AFTER UPDATE ON " + table[0] +
+                    " BEGIN " + bump.formatted("old." + table[1]) + " " + bump.formatted("new." + table[1]) + " END");
+        }
+        stmt.execute("CREATE TRIGGER roster_version_doctor_update AFTER UPDATE OF username, name, role ON users " +
+                "WHEN old.role = 'doctor' OR new.role = 'doctor' BEGIN " + bump.formatted("new.id") + " END");
+        stmt.execute("CREATE TRIGGER roster_version_patient_update AFTER UPDATE OF username, name, role ON users " +
+                "WHEN old.role = 'patient' OR new.role = 'patient' BEGIN " +
+                bump.formatted("(SELECT assigned_doctor_id FROM patient_info WHERE user_id = new.id)") + " END");
+    }
+}
@@ -0,0 +1,84 @@
+package hospital.util;
+
+import hospital.repository.QueryCancellation;
+import javafx.animation.PauseTransition;
+import javafx.scene.control.TextInputControl;
+import javafx.util.Duration;
+
+import java.util.function.Consumer;
+
+// Search-as-you-type plumbing, used from the JavaFX application thread. Keystrokes are coalesced over a debounce
+// window; starting a query cancels the one still running (interrupting its SQL statement), and a result or error
+// that arrives after a newer query was started is dropped, so only the latest query's rows reach the scene graph.
+public class SearchPipeline<T> {
+
+    public static final Duration DEFAULT_DEBOUNCE = Duration.millis(200);
+
+    public interface Query<T> {
+        T run(String text) throws Exception;
+    }
+
+    private final PauseTransition debounce;
+    private final Query<T> query;
+    private final Consumer<T> onResult;
+    private final Consumer<Throwable> onError;
+    private String pending;
+    private long generation;
+    private QueryCancellation running;
+
+    public SearchPipeline(Query<T> query, Consumer<T> onResult, Consumer<Throwable> onError) {
+        this(DEFAULT_DEBOUNCE, query, onResult, onError);
+    }
+
+    public SearchPipeline(Duration window, Query<T> query, Consumer<T> onResult, Consumer<Throwable> onError) {
+        this.query = query;
+        this.onResult = onResult;
+        this.onError = onError;
+        this.debounce = new PauseTransition(window);
+        this.debounce.setOnFinished(e -> run(pending));
+    }
+
+    public SearchPipeline<T> attach(TextInputControl field) {
+        field.textProperty().addListener((obs, oldVal, newVal) -> submit(newVal));
+        return this;
+    }
+
+    // Restarts the debounce window; the query runs once input has been quiet for the whole window.
+    public void submit(String text) {
+        pending = text;
+        debounce.playFromStart();
+    }
+
+    // Skips the debounce, for the initial load and for explicit actions such as a button or Enter.
+    public void submitNow(String text) {
+        debounce.stop();
+        run(text);
+    }
+
+    // Shows a result that was read elsewhere, e.g. with the rest of a dashboard, in place of the initial load.
+    // It is dropped if a query has already been started, since that one reflects what the user typed.
+    public void seed(T result) {
+        if (generation == 0) {
+            onResult.accept(result);
+        }
+    }
+
+    private void run(String text) {
+        long requested = ++generation;
+        if (running != null) {
+            running.cancel();
+        }
+        QueryCancellation cancellation = new QueryCancellation();
+        running = cancellation;
+
+        Async.load(() -> cancellation.call(() -> query.run(text)), result -> {
+            if (requested != generation) return;
+            running = null;
+            onResult.accept(result);
+        }, e -> {
+            if (requested != generation) return;
+            running = null;
+            onError.accept(e);
+        });
+    }
+}
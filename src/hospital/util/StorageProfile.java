@@ -0,0 +1,98 @@
+package hospital.util;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+public class StorageProfile {
+
+    private static final List<String> JOURNAL_MODES = Arrays.asList("DELETE", "TRUNCATE", "PERSIST", "MEMORY", "WAL", "OFF");
+    private static final List<String> SYNCHRONOUS_LEVELS = Arrays.asList("OFF", "NORMAL", "FULL", "EXTRA");
+    private static final List<String> TEMP_STORES = Arrays.asList("DEFAULT", "FILE", "MEMORY");
+
+    private final String journalMode;
+    private final String synchronous;
+    private final long mmapSize;
+    private final int cacheSize;
+    private final String tempStore;
+    private final int busyTimeoutMs;
+    private final long checkpointIntervalSeconds;
+    private final long optimizeIntervalSeconds;
+
+    public StorageProfile(String journalMode, String synchronous, long mmapSize, int cacheSize, String tempStore,
+                          int busyTimeoutMs, long checkpointIntervalSeconds, long optimizeIntervalSeconds) {
+        this.journalMode = choose("journal_mode", journalMode, JOURNAL_MODES);
+        this.synchronous = choose("synchronous", synchronous, SYNCHRONOUS_LEVELS);
+        this.tempStore = choose("temp_store", tempStore, TEMP_STORES);
+        this.mmapSize = mmapSize;
+        this.cacheSize = cacheSize;
+        this.busyTimeoutMs = busyTimeoutMs;
+        this.checkpointIntervalSeconds = checkpointIntervalSeconds;
+        this.optimizeIntervalSeconds = optimizeIntervalSeconds;
+    }
+
+    // Defaults suit a single clinic workstation; each value can be overridden with -Dhospital.db.<setting>.
+    public static StorageProfile fromSystemProperties() {
+        return new StorageProfile(
+            System.getProperty("hospital.db.journalMode", "WAL"),
+            System.getProperty("hospital.db.synchronous", "NORMAL"),
+            Long.getLong("hospital.db.mmapSize", 256L * 1024 * 1024),
+            Integer.getInteger("hospital.db.cacheSize", -16_000),
+            System.getProperty("hospital.db.tempStore", "MEMORY"),
+            Integer.getInteger("hospital.db.busyTimeoutMs", 5_000),
+            Long.getLong("hospital.db.checkpointIntervalSec", 300),
+            Long.getLong("hospital.db.optimizeIntervalSec", 3_600)
+        );
+    }
+
+    private static String choose(String pragma, String value, List<String> allowed) {
+        String normalized = value.trim().toUpperCase(Locale.ROOT);
+        if (!allowed.contains(normalized)) {
+            throw new IllegalArgumentException("Unsupported " + pragma + " value: " + value);
+        }
+        return normalized;
+    }
+
+    // journal_mode is stored in the database file, so it only needs to be set once at startup.
+    public void applyToDatabase(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("PRAGMA journal_mode = " + journalMode);
+        }
+    }
+
+    public void applyToConnection(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("PRAGMA busy_timeout = " + busyTimeoutMs);
+            stmt.execute("PRAGMA synchronous = " + synchronous);
+            stmt.execute("PRAGMA mmap_size = " + mmapSize);
+            stmt.execute("PRAGMA cache_size = " + cacheSize);
+            stmt.execute("PRAGMA temp_store = " + tempStore);
+        }
+    }
+
+    public String describe(Connection conn) throws SQLException {
+        StringBuilder sb = new StringBuilder("Storage profile:");
+        try (Statement stmt = conn.createStatement()) {
+            for (String pragma : Arrays.asList("journal_mode", "synchronous", "mmap_size", "cache_size",
+                                               "temp_store", "busy_timeout", "foreign_keys")) {
+                try (ResultSet rs = stmt.executeQuery("PRAGMA " + pragma)) {
+                    sb.append(' ').append(pragma).append('=').append(rs.next() ? rs.getString(1) : "?");
+                }
+            }
+        }
+        sb.append(" checkpoint_every=").append(checkpointIntervalSeconds).append('s');
+        sb.append(" optimize_every=").append(optimizeIntervalSeconds).append('s');
+        return sb.toString();
+    }
+
+    public boolean isWal() {
+        return "WAL".equals(journalMode);
+    }
+
+    public long getCheckpointIntervalSeconds() { return checkpointIntervalSeconds; }
+    public long getOptimizeIntervalSeconds() { return optimizeIntervalSeconds; }
+}
@@ -0,0 +1,96 @@
+package hospital.model;
+
+import hospital.util.SchemaMigrator;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Random;
+
+// Per-query latency of pooled name lookups with the statement cache off (size 0) and on, against a throwaway
+// database of 100k patients and 200 doctors. Each lookup acquires a connection, prepares, runs and closes the
+// statement and returns the connection, as the repositories do.
+// Usage: StatementCacheBenchmark [patients] [lookups] [cacheSize]
+public class StatementCacheBenchmark {
+
+    private static final String DOCTOR_NAME = "SELECT name FROM users WHERE username = ? AND role = 'doctor'";
+    private static final String PATIENT_NAME = "SELECT p.name FROM patient_info p JOIN users u ON u.id = p.user_id " +
+            "WHERE u.username = ?";
+    private static final int DOCTORS = 200;
+
+    public static void main(String[] args) throws Exception {
+        int patients = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int lookups = args.length > 1 ? Integer.parseInt(args[1]) : 50_000;
+        int cacheSize = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+
+        Path dir = Files.createTempDirectory("stmt-bench");
+        String url = "jdbc:sqlite:" + dir.resolve("bench.db");
+        try (Connection conn = DriverManager.getConnection(url)) {
+            SchemaMigrator.migrate(conn);
+            seed(conn, patients);
+        }
+
+        for (int size : new int[] {0, cacheSize}) {
+            ConnectionPool pool = new ConnectionPool(url, 1, 10_000, 30_000, size);
+            try {
+                run(pool, DOCTOR_NAME, "dr", DOCTORS, lookups);       // warm-up
+                run(pool, PATIENT_NAME, "pt", patients, lookups);
+                double doctor = run(pool, DOCTOR_NAME, "dr", DOCTORS, lookups);
+                double patient = run(pool, PATIENT_NAME, "pt", patients, lookups);
+                System.out.printf("cache=%-3d doctor name by username %.1f us  patient name by username %.1f us  %s%n",
+                        size, doctor, patient, pool.getStats());
+            } finally {
+                pool.close();
+            }
+        }
+    }
+
+    private static void seed(Connection conn, int patients) throws SQLException {
+        conn.setAutoCommit(false);
+        try (PreparedStatement user = conn.prepareStatement(
+                     "INSERT INTO users(username, password, role, name) VALUES (?, 'x', ?, ?)");
+             Statement stmt = conn.createStatement()) {
+            for (int i = 0; i < DOCTORS; i++) {
+                user.setString(1, "dr" + i);
+                user.setString(2, "doctor");
+                user.setString(3, "Doctor " + i);
+                user.addBatch();
+            }
+            for (int i = 0; i < patients; i++) {
+                user.setString(1, "pt" + i);
+                user.setString(2, "patient");
+                user.setString(3, null);
+                user.addBatch();
+            }
+            user.executeBatch();
+            stmt.execute("INSERT INTO patient_info(user_id, name, phone, assigned_doctor_id) " +
+                    "SELECT u.id, 'Patient ' || u.id, '555', (SELECT id FROM users WHERE username = 'dr' || (u.id % " +
+                    DOCTORS + ")) FROM users u WHERE u.role = 'patient'");
+        }
+        conn.commit();
+        conn.setAutoCommit(true);
+    }
+
+    // Average microseconds per lookup of a random username.
+    private static double run(ConnectionPool pool, String sql, String prefix, int rows, int lookups) throws SQLException {
+        Random random = new Random(42);
+        long start = System.nanoTime();
+        for (int i = 0; i < lookups; i++) {
+            try (Connection conn = pool.acquire();
+                 PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setString(1, prefix + random.nextInt(rows));
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (!rs.next()) {
+                        throw new IllegalStateException("No row for lookup " + i);
+                    }
+                }
+            }
+        }
+        return (System.nanoTime() - start) / 1_000.0 / lookups;
+    }
+}
@@ -0,0 +1,71 @@
+package hospital.repository;
+
+import hospital.util.SchemaMigrator;
+
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+// Migrates a legacy database whose roles are spelled inconsistently, then checks that every role was
+// normalized and that EXPLAIN QUERY PLAN answers UserRepository.findByRole from idx_users_role instead of
+// scanning users. Exits non-zero on failure.
+public class RoleIndexPlanCheck {
+
+    public static void main(String[] args) throws Exception {
+        String url = "jdbc:sqlite:" + Files.createTempDirectory("role-plan").resolve("plan.db");
+        try (Connection conn = DriverManager.getConnection(url)) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("CREATE TABLE users (username TEXT PRIMARY KEY, password TEXT NOT NULL, " +
+                        "role TEXT NOT NULL, email TEXT, name TEXT)");
+                stmt.execute("CREATE INDEX idx_users_role ON users(role)");
+                stmt.execute("INSERT INTO users (username, password, role, name) VALUES " +
+                        "('a', 'x', 'Admin', 'A'), ('d1', 'x', 'Doctor', 'D1'), ('d2', 'x', ' doctor ', 'D2'), " +
+                        "('n1', 'x', 'NURSE', 'N1'), ('p1', 'x', 'patient', 'P1')");
+            }
+            SchemaMigrator.migrate(conn);
+
+            check(count(conn, "SELECT COUNT(*) FROM users WHERE role = 'doctor'") == 2,
+                    "both spellings of doctor are normalized");
+            check(count(conn, "SELECT COUNT(*) FROM users WHERE role NOT IN ('admin', 'doctor', 'nurse', 'patient')") == 0,
+                    "no role is left un-normalized");
+
+            List<String> plan = plan(conn, UserRepository.BY_ROLE);
+            check(plan.stream().anyMatch(step -> step.startsWith("SEARCH u USING") && step.contains("idx_users_role")),
+                    "findByRole searches idx_users_role: " + plan);
+            check(plan.stream().noneMatch(step -> step.startsWith("SCAN u")),
+                    "findByRole does not scan users: " + plan);
+        }
+        System.out.println("RoleIndexPlanCheck passed");
+    }
+
+    private static List<String> plan(Connection conn, String sql) throws SQLException {
+        List<String> steps = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement("EXPLAIN QUERY PLAN " + sql)) {
+            stmt.setString(1, "doctor");
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    steps.add(rs.getString("detail"));
+                }
+            }
+        }
+        return steps;
+    }
+
+    private static int count(Connection conn, String sql) throws SQLException {
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private static void check(boolean condition, String what) {
+        if (!condition) {
+            throw new AssertionError("Failed: " + what);
+        }
+    }
+}